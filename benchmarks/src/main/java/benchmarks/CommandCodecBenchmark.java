@@ -0,0 +1,120 @@
+package benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import server.BinaryValue;
+import server.Command;
+import server.TransactionCommand;
+
+/**
+ * Measures encoding and decoding of the commands exchanged between replicas, using the Java
+ * serialization that RMI applies to every remote prepare and accept. Binary commands carry the
+ * same value compressed, as written by {@code putfile}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommandCodecBenchmark {
+
+  private static final int TRANSACTION_WRITES = 10;
+
+  @Param({"16", "4096"})
+  public int valueSize;
+
+  private Command command;
+  private Command binaryCommand;
+  private TransactionCommand transaction;
+  private byte[] encodedCommand;
+  private byte[] encodedBinaryCommand;
+  private byte[] encodedTransaction;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    char[] chars = new char[valueSize];
+    Arrays.fill(chars, 'v');
+    String value = new String(chars);
+    command = Command.put("key", value);
+    binaryCommand = Command.putBinary("key", BinaryValue.of(value.getBytes(StandardCharsets.UTF_8)));
+    List<Command> writes = new ArrayList<>();
+    Map<String, Long> reads = new HashMap<>();
+    for (int i = 0; i < TRANSACTION_WRITES; i++) {
+      writes.add(Command.put("key" + i, value));
+      reads.put("key" + i, (long) i);
+    }
+    transaction = new TransactionCommand("transaction", reads, writes);
+    encodedCommand = encode(command);
+    encodedTransaction = encode(transaction);
+    encodedBinaryCommand = encode(binaryCommand);
+  }
+
+  @Benchmark
+  public byte[] encodeCommand() throws IOException {
+    return encode(command);
+  }
+
+  @Benchmark
+  public Object decodeCommand() throws IOException, ClassNotFoundException {
+    return decode(encodedCommand);
+  }
+
+  @Benchmark
+  public byte[] encodeBinaryCommand() throws IOException {
+    return encode(binaryCommand);
+  }
+
+  @Benchmark
+  public Object decodeBinaryCommand() throws IOException, ClassNotFoundException {
+    return decode(encodedBinaryCommand);
+  }
+
+  @Benchmark
+  public byte[] encodeTransaction() throws IOException {
+    return encode(transaction);
+  }
+
+  @Benchmark
+  public Object decodeTransaction() throws IOException, ClassNotFoundException {
+    return decode(encodedTransaction);
+  }
+
+  private static byte[] encode(Object object) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(object);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static Object decode(byte[] bytes) throws IOException, ClassNotFoundException {
+    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+      return in.readObject();
+    }
+  }
+}
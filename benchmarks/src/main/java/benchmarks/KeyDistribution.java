@@ -0,0 +1,59 @@
+package benchmarks;
+
+import java.util.Random;
+
+/**
+ * Precomputes a sequence of key indexes following a uniform or Zipfian distribution,
+ * so that drawing a key inside a benchmark is a single array read.
+ */
+final class KeyDistribution {
+
+  private static final double ZIPFIAN_THETA = 0.99;
+
+  private KeyDistribution() {
+  }
+
+  /**
+   * Draws {@code samples} key indexes in {@code [0, keyCount)}.
+   *
+   * @param name "uniform" or "zipfian"
+   * @param keyCount the number of distinct keys
+   * @param samples the number of indexes to draw
+   * @param seed the seed of the random generator
+   * @return the drawn indexes
+   */
+  static int[] sample(String name, int keyCount, int samples, long seed) {
+    Random random = new Random(seed);
+    int[] indexes = new int[samples];
+    if ("uniform".equals(name)) {
+      for (int i = 0; i < samples; i++) {
+        indexes[i] = random.nextInt(keyCount);
+      }
+      return indexes;
+    }
+    if (!"zipfian".equals(name)) {
+      throw new IllegalArgumentException("Unknown key distribution: " + name);
+    }
+    double[] cumulative = new double[keyCount];
+    double sum = 0;
+    for (int i = 0; i < keyCount; i++) {
+      sum += 1 / Math.pow(i + 1, ZIPFIAN_THETA);
+      cumulative[i] = sum;
+    }
+    for (int i = 0; i < samples; i++) {
+      double target = random.nextDouble() * sum;
+      int low = 0;
+      int high = keyCount - 1;
+      while (low < high) {
+        int middle = (low + high) >>> 1;
+        if (cumulative[middle] < target) {
+          low = middle + 1;
+        } else {
+          high = middle;
+        }
+      }
+      indexes[i] = low;
+    }
+    return indexes;
+  }
+}
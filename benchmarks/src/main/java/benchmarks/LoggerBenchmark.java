@@ -0,0 +1,61 @@
+package benchmarks;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import shared.Logger;
+
+/**
+ * Measures the cost of a log call on the request path: a synchronous line, an asynchronous line
+ * handed to the ring buffer, and a disabled debug line whose message is never built.
+ * Output goes to a stream that discards everything, so only the logger itself is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoggerBenchmark {
+
+  private Logger syncLogger;
+  private Logger asyncLogger;
+  private int port;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    Logger.setLevel(Logger.Level.INFO);
+    PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+    syncLogger = new Logger(discard);
+    asyncLogger = new Logger(discard, true);
+    port = 5000;
+  }
+
+  @Benchmark
+  public void syncInfo() {
+    syncLogger.log("Port:" + port + ":Received GET request: key");
+  }
+
+  @Benchmark
+  public void asyncInfo() {
+    asyncLogger.log("Port:" + port + ":Received GET request: key");
+  }
+
+  @Benchmark
+  public void disabledDebug() {
+    asyncLogger.debug(() -> "Port:" + port + ":Received GET request: key");
+  }
+}
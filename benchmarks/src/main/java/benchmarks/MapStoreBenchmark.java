@@ -0,0 +1,87 @@
+package benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures reads and writes on the {@link ConcurrentHashMap} that backs each replica's map store,
+ * under uniform and Zipfian key distributions. The thread count defaults to 4 and can be changed
+ * with JMH's {@code -t} option.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class MapStoreBenchmark {
+
+  private static final int SAMPLES = 1 << 16;
+
+  @Param({"uniform", "zipfian"})
+  public String distribution;
+
+  @Param({"1000", "1000000"})
+  public int keyCount;
+
+  private Map<String, String> mapStore;
+  private String[] keys;
+  private int[] sampledIndexes;
+
+  /**
+   * Per-thread position in the shared sequence of sampled keys.
+   */
+  @State(Scope.Thread)
+  public static class Cursor {
+    private static final AtomicLong seeds = new AtomicLong();
+    int position;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+      position = (int) (seeds.getAndIncrement() * 7919);
+    }
+  }
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    mapStore = new ConcurrentHashMap<>();
+    keys = new String[keyCount];
+    for (int i = 0; i < keyCount; i++) {
+      keys[i] = "key" + i;
+      mapStore.put(keys[i], "value" + i);
+    }
+    sampledIndexes = KeyDistribution.sample(distribution, keyCount, SAMPLES, 42);
+  }
+
+  @Benchmark
+  public String get(Cursor cursor) {
+    return mapStore.get(nextKey(cursor));
+  }
+
+  @Benchmark
+  public String put(Cursor cursor) {
+    String key = nextKey(cursor);
+    return mapStore.put(key, key);
+  }
+
+  private String nextKey(Cursor cursor) {
+    return keys[sampledIndexes[cursor.position++ & (SAMPLES - 1)]];
+  }
+}
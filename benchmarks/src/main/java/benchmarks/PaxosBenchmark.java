@@ -0,0 +1,84 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import server.PaxosServer;
+import server.PaxosServerImpl;
+import shared.Logger;
+
+/**
+ * Measures full Paxos rounds through {@link PaxosServerImpl#put(String, String)} against a
+ * cluster of in-process replicas, with the failure-simulating acceptor threads disabled.
+ * Reads are measured alongside as the local, consensus-free baseline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PaxosBenchmark {
+
+  private static final int KEY_COUNT = 1024;
+
+  @Param({"3", "5"})
+  public int replicas;
+
+  private List<PaxosServer> servers;
+  private PaxosServer proposer;
+  private String[] keys;
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    Logger.setLevel(Logger.Level.WARN);
+    servers = new ArrayList<>();
+    for (int i = 0; i < replicas; i++) {
+      servers.add(new PaxosServerImpl(5000 + i, false));
+    }
+    for (PaxosServer server : servers) {
+      server.updateConnectedServers(servers);
+    }
+    proposer = servers.get(0);
+    keys = new String[KEY_COUNT];
+    for (int i = 0; i < KEY_COUNT; i++) {
+      keys[i] = "key" + i;
+      proposer.put(keys[i], "value" + i);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    // Stop the heartbeat and peer-call threads so they do not run on into later trials of the fork
+    for (PaxosServer server : servers) {
+      ((PaxosServerImpl) server).shutdown();
+    }
+  }
+
+  @Benchmark
+  public String put() throws Exception {
+    int index = next++ & (KEY_COUNT - 1);
+    return proposer.put(keys[index], "value" + index);
+  }
+
+  @Benchmark
+  public String get() throws Exception {
+    return proposer.get(keys[next++ & (KEY_COUNT - 1)]);
+  }
+}
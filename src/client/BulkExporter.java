@@ -0,0 +1,145 @@
+package client;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import server.Command;
+import server.Server;
+
+/**
+ * BulkExporter writes a consistent snapshot of the store, string and binary values alike, to a
+ * file of JSON lines, which {@link BulkImporter} can load back, without pausing writes on the server.
+ * <p>
+ * The entries are streamed in chunks into a temporary file next to the target. The server then
+ * returns the keys written while the export ran, with their final values; if there are any, the
+ * temporary file is rewritten once with their entries replaced, so the result matches the store
+ * at the moment the export finished.
+ * <p>
+ * Options are given as {@code name=value} pairs:
+ * <ul>
+ *   <li>chunkSize - number of entries fetched per call (default 10000)</li>
+ *   <li>namespace - the namespace to export (default the default namespace)</li>
+ * </ul>
+ */
+public class BulkExporter {
+
+  private Server server;
+  private final String namespace;
+  private final Path file;
+  private final int chunkSize;
+
+  /**
+   * Constructs a BulkExporter from {@code name=value} options.
+   *
+   * @param server the remote server to export from
+   * @param file the path of the file to write
+   * @param options the export options
+   * @throws IllegalArgumentException if an option is unknown or invalid
+   */
+  public BulkExporter(Server server, String file, String[] options) {
+    Map<String, String> values = new HashMap<>();
+    for (String option : options) {
+      String[] nameAndValue = option.split("=", 2);
+      if (nameAndValue.length != 2) {
+        throw new IllegalArgumentException("Option must be name=value: " + option);
+      }
+      values.put(nameAndValue[0], nameAndValue[1]);
+    }
+    List<String> known = Arrays.asList("chunkSize", "namespace");
+    for (String name : values.keySet()) {
+      if (!known.contains(name)) {
+        throw new IllegalArgumentException("Unknown option: " + name);
+      }
+    }
+    this.server = server;
+    this.namespace = values.get("namespace");
+    this.file = Paths.get(file);
+    this.chunkSize = Integer.parseInt(values.getOrDefault("chunkSize", "10000"));
+    if (chunkSize <= 0) {
+      throw new IllegalArgumentException("chunkSize must be positive");
+    }
+  }
+
+  /**
+   * Exports the store and prints a summary.
+   *
+   * @throws IOException if the file cannot be written, or the server cannot be reached
+   */
+  public void run() throws IOException {
+    if (namespace != null) {
+      server = server.namespace(namespace);
+    }
+    long start = System.nanoTime();
+    Path partial = file.resolveSibling(file.getFileName() + ".part");
+    long exportId = server.openExport();
+    long streamed = 0;
+    try (BufferedWriter writer = Files.newBufferedWriter(partial, StandardCharsets.UTF_8)) {
+      List<Command> chunk;
+      while (!(chunk = server.exportChunk(exportId, chunkSize)).isEmpty()) {
+        for (Command entry : chunk) {
+          writer.write(JsonLines.format(entry));
+          writer.newLine();
+        }
+        streamed += chunk.size();
+      }
+    }
+    List<Command> corrections = server.finishExport(exportId);
+    long exported = corrections.isEmpty() ? streamed : applyCorrections(partial, corrections);
+    Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING);
+
+    double seconds = (System.nanoTime() - start) / 1e9;
+    System.out.println("---------- Export report ----------");
+    System.out.println("Entries exported   : " + exported);
+    System.out.println("Keys corrected     : " + corrections.size() + " (written during the export)");
+    System.out.printf("Throughput         : %.1f entries/s over %.1fs%n", exported / seconds, seconds);
+  }
+
+  /**
+   * Rewrites the streamed entries, dropping those of keys written during the export and then
+   * appending the final value of each such key that is still present.
+   *
+   * @param partial the file holding the streamed entries, replaced by the corrected one
+   * @param corrections the final value of each key written during the export, or a delete if removed
+   * @return the number of entries in the corrected file
+   */
+  private long applyCorrections(Path partial, List<Command> corrections) throws IOException {
+    Path corrected = partial.resolveSibling(partial.getFileName() + ".tmp");
+    Set<String> correctedKeys = new HashSet<>();
+    for (Command correction : corrections) {
+      correctedKeys.add(correction.getKey());
+    }
+    long entries = 0;
+    try (BufferedReader reader = Files.newBufferedReader(partial, StandardCharsets.UTF_8);
+         BufferedWriter writer = Files.newBufferedWriter(corrected, StandardCharsets.UTF_8)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (!correctedKeys.contains(JsonLines.keyOf(line))) {
+          writer.write(line);
+          writer.newLine();
+          entries++;
+        }
+      }
+      for (Command correction : corrections) {
+        if (correction.getType() != Command.Type.DELETE) {
+          writer.write(JsonLines.format(correction));
+          writer.newLine();
+          entries++;
+        }
+      }
+    }
+    Files.move(corrected, partial, StandardCopyOption.REPLACE_EXISTING);
+    return entries;
+  }
+}
@@ -0,0 +1,322 @@
+package client;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import server.Command;
+import server.Server;
+
+/**
+ * BulkImporter loads a file of key-value records into the store in large batches, each of which
+ * is replicated as a single command with {@link Server#putAll(Map)}. Binary values, which only JSON
+ * lines can hold, are written one at a time with {@link Server#putBinary(String, server.BinaryValue)}.
+ * <p>
+ * The file is read sequentially while the parsing and sending of batches happens on a pool of
+ * threads, so several batches are in flight at once. At most two batches per thread are read
+ * ahead, which bounds memory use however large the file is. Batches that fail or find the server
+ * busy are retried with jittered exponential backoff, so that batches whose rounds collided do
+ * not collide again. Batches may complete out of order, so if a key appears more than once in
+ * the file, only its occurrences within one batch are applied in order.
+ * <p>
+ * Records are either CSV lines, {@code key,value}, where a field may be double-quoted to hold
+ * commas and {@code ""} stands for a quote, or JSON lines as written by {@link BulkExporter}.
+ * Blank lines are skipped, and so are invalid ones, which are reported.
+ * <p>
+ * Options are given as {@code name=value} pairs:
+ * <ul>
+ *   <li>format - csv or jsonl (default jsonl for files ending in .jsonl or .json, csv otherwise)</li>
+ *   <li>batchSize - number of records per batch (default 1000)</li>
+ *   <li>threads - number of batches sent concurrently (default 4)</li>
+ *   <li>attempts - number of times a batch is tried before it is given up (default 10)</li>
+ *   <li>namespace - the namespace to import into (default the default namespace)</li>
+ * </ul>
+ */
+public class BulkImporter {
+
+  private static final String FAILURE_MARKER = "Please try again";
+  private static final String REFUSED_MARKER = "Write refused";
+  private static final long INITIAL_BACKOFF_MS = 50;
+  private static final int MAX_REPORTED_ERRORS = 10;
+
+  private Server server;
+  private final String namespace;
+  private final String file;
+  private final boolean jsonLines;
+  private final int batchSize;
+  private final int threads;
+  private final int attempts;
+
+  private final LongAdder importedRecords;
+  private final LongAdder skippedLines;
+  private final LongAdder failedBatches;
+  private final LongAdder failedRecords;
+
+  /**
+   * Constructs a BulkImporter from {@code name=value} options.
+   *
+   * @param server the remote server to import into
+   * @param file the path of the file to import
+   * @param options the import options
+   * @throws IllegalArgumentException if an option is unknown or invalid
+   */
+  public BulkImporter(Server server, String file, String[] options) {
+    Map<String, String> values = new HashMap<>();
+    for (String option : options) {
+      String[] nameAndValue = option.split("=", 2);
+      if (nameAndValue.length != 2) {
+        throw new IllegalArgumentException("Option must be name=value: " + option);
+      }
+      values.put(nameAndValue[0], nameAndValue[1]);
+    }
+    List<String> known = Arrays.asList("format", "batchSize", "threads", "attempts", "namespace");
+    for (String name : values.keySet()) {
+      if (!known.contains(name)) {
+        throw new IllegalArgumentException("Unknown option: " + name);
+      }
+    }
+    String defaultFormat = file.endsWith(".jsonl") || file.endsWith(".json") ? "jsonl" : "csv";
+    String format = values.getOrDefault("format", defaultFormat);
+    if (!format.equals("csv") && !format.equals("jsonl")) {
+      throw new IllegalArgumentException("Unknown format: " + format);
+    }
+    this.server = server;
+    this.namespace = values.get("namespace");
+    this.file = file;
+    this.jsonLines = format.equals("jsonl");
+    this.batchSize = Integer.parseInt(values.getOrDefault("batchSize", "1000"));
+    this.threads = Integer.parseInt(values.getOrDefault("threads", "4"));
+    this.attempts = Integer.parseInt(values.getOrDefault("attempts", "10"));
+    if (batchSize <= 0 || threads <= 0 || attempts <= 0) {
+      throw new IllegalArgumentException("batchSize, threads and attempts must be positive");
+    }
+    this.importedRecords = new LongAdder();
+    this.skippedLines = new LongAdder();
+    this.failedBatches = new LongAdder();
+    this.failedRecords = new LongAdder();
+  }
+
+  /**
+   * Imports the file and prints a summary once every batch was sent.
+   *
+   * @throws IOException if the file cannot be read
+   * @throws InterruptedException if interrupted while waiting for the batches
+   */
+  public void run() throws IOException, InterruptedException {
+    if (namespace != null) {
+      server = server.namespace(namespace);
+    }
+    System.out.println("Importing " + file + " as " + (jsonLines ? "JSON lines" : "CSV") + " in batches of "
+            + batchSize + " with " + threads + " threads");
+    ExecutorService senders = Executors.newFixedThreadPool(threads);
+    Semaphore readAhead = new Semaphore(threads * 2);
+    long start = System.nanoTime();
+    long lineNumber = 0;
+    try (BufferedReader reader = Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8)) {
+      List<String> lines = new ArrayList<>(batchSize);
+      long firstLine = 1;
+      String line;
+      while ((line = reader.readLine()) != null) {
+        lineNumber++;
+        lines.add(line);
+        if (lines.size() == batchSize) {
+          submit(senders, readAhead, lines, firstLine);
+          lines = new ArrayList<>(batchSize);
+          firstLine = lineNumber + 1;
+        }
+      }
+      if (!lines.isEmpty()) {
+        submit(senders, readAhead, lines, firstLine);
+      }
+    } finally {
+      senders.shutdown();
+      senders.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+    double seconds = (System.nanoTime() - start) / 1e9;
+    System.out.println("---------- Import report ----------");
+    System.out.println("Lines read         : " + lineNumber);
+    System.out.println("Records imported   : " + importedRecords.sum());
+    System.out.println("Lines skipped      : " + skippedLines.sum());
+    System.out.println("Records failed     : " + failedRecords.sum());
+    System.out.println("Batches failed     : " + failedBatches.sum());
+    System.out.printf("Throughput         : %.1f records/s over %.1fs%n", importedRecords.sum() / seconds, seconds);
+  }
+
+  private void submit(ExecutorService senders, Semaphore readAhead, List<String> lines, long firstLine)
+          throws InterruptedException {
+    readAhead.acquire();
+    senders.execute(() -> {
+      try {
+        send(parse(lines, firstLine), firstLine);
+      } finally {
+        readAhead.release();
+      }
+    });
+  }
+
+  /**
+   * Parses the lines of one batch, skipping blank and invalid ones.
+   *
+   * @param lines the lines of the batch
+   * @param firstLine the line number of the first line, for error messages
+   * @return the records of the batch as puts; a key repeated within the batch keeps its last value
+   */
+  private Map<String, Command> parse(List<String> lines, long firstLine) {
+    Map<String, Command> records = new LinkedHashMap<>();
+    for (int i = 0; i < lines.size(); i++) {
+      String line = lines.get(i);
+      if (line.trim().isEmpty()) {
+        continue;
+      }
+      try {
+        Command record = jsonLines ? JsonLines.parse(line) : parseCsv(line);
+        records.remove(record.getKey());
+        records.put(record.getKey(), record);
+      } catch (IllegalArgumentException e) {
+        skippedLines.increment();
+        if (skippedLines.sum() <= MAX_REPORTED_ERRORS) {
+          System.out.println("Skipping line " + (firstLine + i) + ": " + e.getMessage());
+        }
+      }
+    }
+    return records;
+  }
+
+  /**
+   * Sends one batch: its string values together as one command, then its binary values one by one.
+   *
+   * @param records the records of the batch
+   * @param firstLine the line number the batch starts at, for error messages
+   */
+  private void send(Map<String, Command> records, long firstLine) {
+    Map<String, String> values = new LinkedHashMap<>();
+    List<Command> binaries = new ArrayList<>();
+    for (Command record : records.values()) {
+      if (record.getType() == Command.Type.PUT_BINARY) {
+        binaries.add(record);
+      } else {
+        values.put(record.getKey(), record.getValue());
+      }
+    }
+    if (!values.isEmpty() && !retry(() -> server.putAll(values), "Batch starting at line " + firstLine)) {
+      failedRecords.add(records.size());
+      return;
+    }
+    importedRecords.add(values.size());
+    for (int i = 0; i < binaries.size(); i++) {
+      Command binary = binaries.get(i);
+      if (!retry(() -> server.putBinary(binary.getKey(), binary.getBinaryValue()),
+              "Binary value of " + binary.getKey() + " in the batch starting at line " + firstLine)) {
+        failedRecords.add(binaries.size() - i);
+        return;
+      }
+      importedRecords.increment();
+    }
+  }
+
+  /**
+   * Sends a write, retrying with jittered exponential backoff while the server is busy or the round fails.
+   * A write the server refuses outright, such as one over its namespace's quota, is not retried.
+   *
+   * @param write the write to send
+   * @param description what is written, for error messages
+   * @return whether the write succeeded; if not, the batch is counted as failed
+   */
+  private boolean retry(Write write, String description) {
+    long backoff = INITIAL_BACKOFF_MS;
+    String failure = null;
+    for (int attempt = 1; attempt <= attempts; attempt++) {
+      try {
+        String response = write.send();
+        if (response.contains(REFUSED_MARKER)) {
+          failedBatches.increment();
+          System.out.println(description + " was refused: " + response);
+          return false;
+        }
+        if (!response.contains(FAILURE_MARKER)) {
+          return true;
+        }
+        failure = response;
+      } catch (RemoteException | ExecutionException e) {
+        failure = e.getMessage();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return false;
+      }
+      try {
+        Thread.sleep(ThreadLocalRandom.current().nextLong(backoff / 2, backoff + 1));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return false;
+      }
+      backoff *= 2;
+    }
+    failedBatches.increment();
+    System.out.println(description + " failed after " + attempts + " attempts: " + failure);
+    return false;
+  }
+
+  /**
+   * Parses a CSV record of two fields, either of which may be double-quoted.
+   *
+   * @param line the CSV line
+   * @return a put of the record's value
+   * @throws IllegalArgumentException if the line does not hold exactly two fields
+   */
+  private static Command parseCsv(String line) {
+    List<String> fields = new ArrayList<>(2);
+    StringBuilder field = new StringBuilder();
+    boolean quoted = false;
+    for (int i = 0; i < line.length(); i++) {
+      char c = line.charAt(i);
+      if (quoted) {
+        if (c != '"') {
+          field.append(c);
+        } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+          field.append('"');
+          i++;
+        } else {
+          quoted = false;
+        }
+      } else if (c == '"' && field.length() == 0) {
+        quoted = true;
+      } else if (c == ',') {
+        fields.add(field.toString());
+        field.setLength(0);
+      } else {
+        field.append(c);
+      }
+    }
+    if (quoted) {
+      throw new IllegalArgumentException("Unterminated quoted field");
+    }
+    fields.add(field.toString());
+    if (fields.size() != 2) {
+      throw new IllegalArgumentException("Expected key,value but found " + fields.size() + " fields");
+    }
+    return Command.put(fields.get(0), fields.get(1));
+  }
+
+  /**
+   * A write to the server, answered with the server's response.
+   */
+  private interface Write {
+    String send() throws RemoteException, ExecutionException, InterruptedException;
+  }
+}
@@ -10,6 +10,7 @@ import java.rmi.NotBoundException;
 import java.rmi.RemoteException;
 import java.rmi.registry.LocateRegistry;
 import java.rmi.registry.Registry;
+import java.util.Arrays;
 
 import server.Server;
 
@@ -23,11 +24,22 @@ public class ClientApp {
    * The main method initializes the client application, connects to the remote server,
    * and sends requests from both a file and the standard input.
    *
-   * @param args command-line arguments specifying the host of the RMI registry
+   * @param args command-line arguments specifying the port of the RMI registry, optionally followed by
+   *             {@code load} and the {@link LoadGenerator} options to run a load test instead, or by
+   *             {@code import} or {@code export}, a file and the {@link BulkImporter} or
+   *             {@link BulkExporter} options to load or dump the store
    */
   public static void main(String[] args) {
 
     Integer port = (args.length < 1) ? 5000 : Integer.parseInt(args[0]);
+    if (args.length > 1 && args[1].equalsIgnoreCase("load")) {
+      runLoad(port, Arrays.copyOfRange(args, 2, args.length));
+      return;
+    }
+    if (args.length > 2 && (args[1].equalsIgnoreCase("import") || args[1].equalsIgnoreCase("export"))) {
+      runBulk(port, args[1].equalsIgnoreCase("import"), args[2], Arrays.copyOfRange(args, 3, args.length));
+      return;
+    }
     Registry registry = null;
     boolean proceed = false;
     int retry = 1;
@@ -67,6 +79,54 @@ public class ClientApp {
     }
   }
 
+  /**
+   * Runs a load test against the server at the given port and exits.
+   *
+   * @param port the port of the server's RMI registry
+   * @param options the load generator options
+   */
+  private static void runLoad(int port, String[] options) {
+    try {
+      Registry registry = LocateRegistry.getRegistry(port);
+      Server stub = (Server) registry.lookup("Store");
+      new LoadGenerator(stub, options).run();
+    } catch (RemoteException | NotBoundException e) {
+      System.out.println("Error encountered while fetching remote object from registry. " + e.getMessage());
+    } catch (IllegalArgumentException e) {
+      System.out.println("Invalid load options. " + e.getMessage());
+    } catch (InterruptedException e) {
+      System.out.println("Load test interrupted");
+    }
+  }
+
+  /**
+   * Imports a file into, or exports the store to a file from, the server at the given port and exits.
+   *
+   * @param port the port of the server's RMI registry
+   * @param importing true to import the file, false to export to it
+   * @param file the path of the file
+   * @param options the import or export options
+   */
+  private static void runBulk(int port, boolean importing, String file, String[] options) {
+    try {
+      Registry registry = LocateRegistry.getRegistry(port);
+      Server stub = (Server) registry.lookup("Store");
+      if (importing) {
+        new BulkImporter(stub, file, options).run();
+      } else {
+        new BulkExporter(stub, file, options).run();
+      }
+    } catch (NotBoundException e) {
+      System.out.println("Error encountered while fetching remote object from registry. " + e.getMessage());
+    } catch (IOException e) {
+      System.out.println("Error encountered during " + (importing ? "import" : "export") + ". " + e.getMessage());
+    } catch (IllegalArgumentException | IllegalStateException e) {
+      System.out.println("Invalid " + (importing ? "import" : "export") + ". " + e.getMessage());
+    } catch (InterruptedException e) {
+      System.out.println("Import interrupted");
+    }
+  }
+
   /**
    *  Method to read user input for server port. Invalid entry will result in using the
    *  default port 5000.
@@ -1,11 +1,18 @@
 package client;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.rmi.NoSuchObjectException;
 import java.rmi.RemoteException;
+import java.rmi.server.UnicastRemoteObject;
 import java.util.Scanner;
 import java.util.concurrent.ExecutionException;
 
+import server.BinaryValue;
 import server.Server;
+import server.WatchListener;
 import shared.Logger;
 
 /**
@@ -15,7 +22,11 @@ import shared.Logger;
 public class ClientImpl implements Client {
 
   private static Logger logger = new Logger(System.out);
+  private final Server connectedServer;
   private Server server;
+  private WatchListenerImpl watchListener;
+  private Transaction transaction;
+  private WatchListener watchListenerStub;
 
   /**
    * Constructs a ClientImpl with the specified server.
@@ -23,6 +34,7 @@ public class ClientImpl implements Client {
    * @param server the remote server to which requests are sent
    */
   public ClientImpl(Server server) {
+    this.connectedServer = server;
     this.server = server;
   }
 
@@ -38,15 +50,18 @@ public class ClientImpl implements Client {
       String inputText = inputScanner.nextLine();
       if (inputText.equalsIgnoreCase("exit")) {
         System.out.println("Stopping client application...");
+        closeWatchListener();
         return false;
       }
       if (inputText.equalsIgnoreCase("disconnect")){
         System.out.println("Disconnected from server");
+        closeWatchListener();
         return true;
       }
       log("Request to be sent to server - " + inputText);
       dispatchRequest(inputText.split(" "));
-      System.out.println("Please enter your command (put, get, delete, disconnect, exit)");
+      System.out.println("Please enter your command (put, get, delete, putfile, getfile, begin, commit, abort, watch, "
+              + "unwatch, use, disconnect, exit)");
     }
     return false;
   }
@@ -64,28 +79,150 @@ public class ClientImpl implements Client {
           if (command.length != 3) {
             log("Invalid command. Put command requires 2 arguments");
           } else {
-            logResponse(server.put(command[1], command[2]));
+            if (transaction != null) {
+              transaction.put(command[1], command[2]);
+              logResponse("Put buffered in transaction " + transaction.getId());
+            } else {
+              logResponse(server.put(command[1], command[2]));
+            }
           }
           break;
         case "get":
           if (command.length != 2) {
             log("Invalid command. Get command require 1 argument");
           } else {
-            logResponse(server.get(command[1]));
+            if (transaction != null) {
+              String value = transaction.get(command[1]);
+              logResponse(value == null ? "Key " + command[1] + " not present in store" : value);
+            } else {
+              logResponse(server.get(command[1]));
+            }
           }
           break;
         case "delete":
           if (command.length != 2) {
             log("Invalid command. Get and Delete command require 1 argument");
           } else {
-            logResponse(server.delete(command[1]));
+            if (transaction != null) {
+              transaction.delete(command[1]);
+              logResponse("Delete buffered in transaction " + transaction.getId());
+            } else {
+              logResponse(server.delete(command[1]));
+            }
+          }
+          break;
+        case "putfile":
+          if (command.length != 3) {
+            log("Invalid command. Putfile command requires a key and a file path");
+          } else {
+            BinaryValue value = BinaryValue.of(Files.readAllBytes(Paths.get(command[2])));
+            logResponse(server.putBinary(command[1], value));
+          }
+          break;
+        case "getfile":
+          if (command.length != 3) {
+            log("Invalid command. Getfile command requires a key and a file path");
+          } else {
+            BinaryValue value = server.getBinary(command[1]);
+            if (value == null) {
+              logResponse("Key " + command[1] + " holds no binary value");
+            } else {
+              Files.write(Paths.get(command[2]), value.toBytes());
+              logResponse("Wrote " + value + " of " + command[1] + " to " + command[2]);
+            }
+          }
+          break;
+        case "begin":
+          if (transaction != null) {
+            log("Transaction " + transaction.getId() + " already in progress");
+          } else {
+            transaction = new Transaction(server);
+            logResponse("Transaction " + transaction.getId() + " started");
+          }
+          break;
+        case "commit":
+          if (transaction == null) {
+            log("No transaction in progress");
+          } else {
+            Transaction committing = transaction;
+            transaction = null;
+            logResponse(committing.commit());
+          }
+          break;
+        case "abort":
+          if (transaction == null) {
+            log("No transaction in progress");
+          } else {
+            log("Transaction " + transaction.getId() + " aborted");
+            transaction = null;
+          }
+          break;
+        case "watch":
+          if (command.length < 2 || command.length > 3) {
+            log("Invalid command. Watch command requires a key or prefix and an optional start index");
+          } else {
+            long fromIndex = command.length == 3 ? Long.parseLong(command[2]) : -1;
+            long id = server.watch(command[1], fromIndex, getWatchListenerStub());
+            logResponse("Watching '" + command[1] + "' with subscription id " + id);
+          }
+          break;
+        case "unwatch":
+          if (command.length != 2) {
+            log("Invalid command. Unwatch command requires 1 argument");
+          } else {
+            server.unwatch(Long.parseLong(command[1]));
+            logResponse("Subscription " + command[1] + " cancelled. Last index received : "
+                    + (watchListener == null ? -1 : watchListener.getLastIndex()));
+          }
+          break;
+        case "use":
+          if (command.length != 2) {
+            log("Invalid command. Use command requires a namespace");
+          } else {
+            server = connectedServer.namespace(command[1]);
+            logResponse("Using namespace " + command[1]);
           }
           break;
         default:
           log("Invalid command provided");
       }
+    } catch (NumberFormatException e) {
+      log("Invalid number provided : " + e.getMessage());
+    } catch (IllegalArgumentException e) {
+      log("Error encountered while performing operation on server : " + e.getMessage());
     } catch (RemoteException | ExecutionException | InterruptedException e) {
       log("Error encountered while performing operation on server : " + e.getMessage());
+    } catch (IOException e) {
+      log("Error encountered while accessing file : " + e.getMessage());
+    }
+  }
+
+  /**
+   * Returns the exported stub of this client's watch listener, exporting it on first use.
+   *
+   * @return the remote stub of the watch listener
+   * @throws RemoteException if the listener could not be exported
+   */
+  private WatchListener getWatchListenerStub() throws RemoteException {
+    if (watchListenerStub == null) {
+      watchListener = new WatchListenerImpl();
+      watchListenerStub = (WatchListener) UnicastRemoteObject.exportObject(watchListener, 0);
+    }
+    return watchListenerStub;
+  }
+
+  /**
+   * Unexports the watch listener, if any, so that the server stops pushing changes to it.
+   */
+  private void closeWatchListener() {
+    if (watchListener != null) {
+      try {
+        UnicastRemoteObject.unexportObject(watchListener, true);
+      } catch (NoSuchObjectException e) {
+        log("Watch listener already closed");
+      }
+      watchListener = null;
+      watchListenerStub = null;
     }
   }
 
@@ -0,0 +1,230 @@
+package client;
+
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+import server.BinaryValue;
+import server.Command;
+
+/**
+ * Reads and writes key-value records as JSON lines, one object per line: {@code {"key":...,"value":...}}
+ * for a string value, or {@code {"key":...,"binary":...}} for a binary value, whose uncompressed
+ * bytes are written in base64. Only flat objects whose fields are strings are understood, which is
+ * all the bulk import and export need.
+ */
+public class JsonLines {
+
+  private JsonLines() {
+  }
+
+  /**
+   * Formats a record as a JSON line.
+   *
+   * @param key the key of the record
+   * @param value the value of the record
+   * @return the JSON object, without a line terminator
+   */
+  public static String format(String key, String value) {
+    StringBuilder line = new StringBuilder(key.length() + value.length() + 24);
+    line.append("{\"key\":");
+    quote(key, line);
+    line.append(",\"value\":");
+    quote(value, line);
+    return line.append('}').toString();
+  }
+
+  /**
+   * Formats the value a put or binary put writes as a JSON line.
+   *
+   * @param command a put or binary put
+   * @return the JSON object, without a line terminator
+   * @throws IllegalArgumentException if the command is neither a put nor a binary put
+   */
+  public static String format(Command command) {
+    switch (command.getType()) {
+      case PUT:
+        return format(command.getKey(), command.getValue());
+      case PUT_BINARY:
+        String binary = Base64.getEncoder().encodeToString(command.getBinaryValue().toBytes());
+        StringBuilder line = new StringBuilder(command.getKey().length() + binary.length() + 24);
+        line.append("{\"key\":");
+        quote(command.getKey(), line);
+        line.append(",\"binary\":");
+        quote(binary, line);
+        return line.append('}').toString();
+      default:
+        throw new IllegalArgumentException("Cannot format " + command.getType() + " as a record");
+    }
+  }
+
+  /**
+   * Parses a JSON line holding a record.
+   *
+   * @param line the JSON object
+   * @return a put of the record's string value, or a binary put of its binary value
+   * @throws IllegalArgumentException if the line is not an object with string fields key and
+   *         either value or binary, or binary is not base64
+   */
+  public static Command parse(String line) {
+    Map<String, String> fields = fields(line);
+    String key = fields.get("key");
+    String value = fields.get("value");
+    String binary = fields.get("binary");
+    if (key == null || (value == null) == (binary == null)) {
+      throw new IllegalArgumentException("Record needs a key and either a value or a binary value");
+    }
+    if (value != null) {
+      return Command.put(key, value);
+    }
+    return Command.putBinary(key, BinaryValue.of(Base64.getDecoder().decode(binary)));
+  }
+
+  /**
+   * Returns the key of a JSON line holding a record, without decoding its value.
+   *
+   * @param line the JSON object
+   * @return the key of the record
+   * @throws IllegalArgumentException if the line is not an object with string fields, or has no key
+   */
+  public static String keyOf(String line) {
+    String key = fields(line).get("key");
+    if (key == null) {
+      throw new IllegalArgumentException("Record needs a key");
+    }
+    return key;
+  }
+
+  private static Map<String, String> fields(String line) {
+    Parser parser = new Parser(line);
+    Map<String, String> fields = new HashMap<>(4);
+    parser.expect('{');
+    if (!parser.consume('}')) {
+      do {
+        String field = parser.string();
+        parser.expect(':');
+        fields.put(field, parser.string());
+      } while (parser.consume(','));
+      parser.expect('}');
+    }
+    parser.end();
+    return fields;
+  }
+
+  private static void quote(String text, StringBuilder out) {
+    out.append('"');
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      switch (c) {
+        case '"':
+          out.append("\\\"");
+          break;
+        case '\\':
+          out.append("\\\\");
+          break;
+        case '\n':
+          out.append("\\n");
+          break;
+        case '\r':
+          out.append("\\r");
+          break;
+        case '\t':
+          out.append("\\t");
+          break;
+        default:
+          if (c < 0x20) {
+            out.append(String.format("\\u%04x", (int) c));
+          } else {
+            out.append(c);
+          }
+      }
+    }
+    out.append('"');
+  }
+
+  /**
+   * A cursor over the characters of one line.
+   */
+  private static final class Parser {
+    private final String text;
+    private int position;
+
+    Parser(String text) {
+      this.text = text;
+    }
+
+    void expect(char expected) {
+      if (!consume(expected)) {
+        throw new IllegalArgumentException("Expected '" + expected + "' at position " + position);
+      }
+    }
+
+    boolean consume(char expected) {
+      skipWhitespace();
+      if (position < text.length() && text.charAt(position) == expected) {
+        position++;
+        return true;
+      }
+      return false;
+    }
+
+    void end() {
+      skipWhitespace();
+      if (position != text.length()) {
+        throw new IllegalArgumentException("Unexpected text at position " + position);
+      }
+    }
+
+    String string() {
+      expect('"');
+      StringBuilder value = new StringBuilder();
+      while (position < text.length()) {
+        char c = text.charAt(position++);
+        if (c == '"') {
+          return value.toString();
+        }
+        if (c != '\\') {
+          value.append(c);
+          continue;
+        }
+        if (position >= text.length()) {
+          break;
+        }
+        char escaped = text.charAt(position++);
+        switch (escaped) {
+          case 'n':
+            value.append('\n');
+            break;
+          case 'r':
+            value.append('\r');
+            break;
+          case 't':
+            value.append('\t');
+            break;
+          case 'b':
+            value.append('\b');
+            break;
+          case 'f':
+            value.append('\f');
+            break;
+          case 'u':
+            if (position + 4 > text.length()) {
+              throw new IllegalArgumentException("Truncated escape at position " + position);
+            }
+            value.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+            position += 4;
+            break;
+          default:
+            value.append(escaped); // \" \\ and \/
+        }
+      }
+      throw new IllegalArgumentException("Unterminated string");
+    }
+
+    private void skipWhitespace() {
+      while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+        position++;
+      }
+    }
+  }
+}
@@ -0,0 +1,106 @@
+package client;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * KeyChooser picks the keys a load generator reads and writes, following one of the
+ * YCSB request distributions:
+ * <ul>
+ *   <li>uniform - every key is equally likely</li>
+ *   <li>zipfian - a few keys are very hot, with popularity falling off as a power law</li>
+ *   <li>latest - writes insert new keys and reads favour the most recently inserted ones</li>
+ * </ul>
+ * Zipfian sampling uses the constant-time method of Gray et al., as YCSB does.
+ */
+public class KeyChooser {
+
+  private static final double ZIPFIAN_CONSTANT = 0.99;
+
+  private final String distribution;
+  private final long keyCount;
+  private final AtomicLong inserted;
+  private final double zetaN;
+  private final double alpha;
+  private final double eta;
+
+  /**
+   * Constructs a KeyChooser over {@code keyCount} keys.
+   *
+   * @param distribution "uniform", "zipfian" or "latest"
+   * @param keyCount the number of keys in the key space, or already inserted for "latest"
+   */
+  public KeyChooser(String distribution, long keyCount) {
+    if (!distribution.equals("uniform") && !distribution.equals("zipfian") && !distribution.equals("latest")) {
+      throw new IllegalArgumentException("Unknown key distribution: " + distribution);
+    }
+    this.distribution = distribution;
+    this.keyCount = keyCount;
+    this.inserted = new AtomicLong(keyCount);
+    this.zetaN = zeta(keyCount);
+    double zeta2 = zeta(2);
+    this.alpha = 1 / (1 - ZIPFIAN_CONSTANT);
+    this.eta = (1 - Math.pow(2.0 / keyCount, 1 - ZIPFIAN_CONSTANT)) / (1 - zeta2 / zetaN);
+  }
+
+  /**
+   * Picks the key of the next read.
+   *
+   * @param random the random generator of the calling thread
+   * @return the key to read
+   */
+  public String nextReadKey(Random random) {
+    switch (distribution) {
+      case "uniform":
+        return key((long) (random.nextDouble() * keyCount));
+      case "zipfian":
+        return key(zipfian(random));
+      default:
+        long latest = inserted.get() - 1;
+        return key(Math.max(0, latest - zipfian(random)));
+    }
+  }
+
+  /**
+   * Picks the key of the next write. With the "latest" distribution every write inserts a new key.
+   *
+   * @param random the random generator of the calling thread
+   * @return the key to write
+   */
+  public String nextWriteKey(Random random) {
+    if (distribution.equals("latest")) {
+      return key(inserted.getAndIncrement());
+    }
+    return nextReadKey(random);
+  }
+
+  /**
+   * Returns the name of the key with the given index.
+   *
+   * @param index the index of the key
+   * @return the key name
+   */
+  public static String key(long index) {
+    return "user" + index;
+  }
+
+  private long zipfian(Random random) {
+    double u = random.nextDouble();
+    double uz = u * zetaN;
+    if (uz < 1) {
+      return 0;
+    }
+    if (uz < 1 + Math.pow(0.5, ZIPFIAN_CONSTANT)) {
+      return Math.min(1, keyCount - 1);
+    }
+    return Math.min(keyCount - 1, (long) (keyCount * Math.pow(eta * u - eta + 1, alpha)));
+  }
+
+  private static double zeta(long n) {
+    double sum = 0;
+    for (long i = 1; i <= n; i++) {
+      sum += 1 / Math.pow(i, ZIPFIAN_CONSTANT);
+    }
+    return sum;
+  }
+}
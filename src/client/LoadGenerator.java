@@ -0,0 +1,305 @@
+package client;
+
+import java.nio.charset.StandardCharsets;
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import server.BinaryValue;
+import server.Server;
+import shared.LatencyHistogram;
+
+/**
+ * LoadGenerator drives a YCSB-style workload against a server and reports throughput and latency.
+ * <p>
+ * In closed-loop mode each client thread sends its next request when the previous one returns,
+ * or at its next scheduled time if a rate is set. In open-loop mode requests arrive at a fixed
+ * rate regardless of how fast the server answers, and wait for a free client thread if all are
+ * busy. Whenever a rate is set, latency is measured from the time a request was scheduled to be
+ * sent rather than the time it actually went out, so a stalled server shows up as queueing delay
+ * instead of silently lowering the offered load (coordinated omission).
+ * <p>
+ * Options are given as {@code name=value} pairs:
+ * <ul>
+ *   <li>reads - fraction of requests that are gets, the rest are puts (default 0.5)</li>
+ *   <li>keys - number of keys in the key space (default 1000)</li>
+ *   <li>distribution - uniform, zipfian or latest (default zipfian)</li>
+ *   <li>valueSize - size of written values in characters (default 100); values are JSON-like records</li>
+ *   <li>binary - true to put and get values as compressed binary values instead of strings (default false)</li>
+ *   <li>threads - number of concurrent clients, i.e. the maximum requests in flight (default 4)</li>
+ *   <li>mode - closed or open (default closed)</li>
+ *   <li>rate - total requests per second; required for open, optional throttle for closed</li>
+ *   <li>duration - length of the measured run in seconds (default 30)</li>
+ *   <li>warmup - seconds of load sent before measuring (default 5)</li>
+ *   <li>preload - true to put every key once before the run (default false)</li>
+ *   <li>namespace - the namespace to run in (default the default namespace)</li>
+ * </ul>
+ */
+public class LoadGenerator {
+
+  private static final String FAILURE_MARKER = "Please try again";
+  private static final String REFUSED_MARKER = "Write refused";
+
+  private Server server;
+  private final String namespace;
+  private final double readProportion;
+  private final int keyCount;
+  private final String distribution;
+  private final int valueSize;
+  private final boolean binary;
+  private final int threads;
+  private final boolean openLoop;
+  private final double rate;
+  private final long durationNanos;
+  private final long warmupNanos;
+  private final boolean preload;
+
+  private final LatencyHistogram readLatencies;
+  private final LatencyHistogram writeLatencies;
+  private final LongAdder errors;
+
+  /**
+   * Constructs a LoadGenerator from {@code name=value} options.
+   *
+   * @param server the remote server to send requests to
+   * @param options the workload options
+   * @throws IllegalArgumentException if an option is unknown or invalid
+   */
+  public LoadGenerator(Server server, String[] options) {
+    Map<String, String> values = new HashMap<>();
+    for (String option : options) {
+      String[] nameAndValue = option.split("=", 2);
+      if (nameAndValue.length != 2) {
+        throw new IllegalArgumentException("Option must be name=value: " + option);
+      }
+      values.put(nameAndValue[0], nameAndValue[1]);
+    }
+    List<String> known = Arrays.asList("reads", "keys", "distribution", "valueSize", "binary", "threads", "mode",
+            "rate", "duration", "warmup", "preload", "namespace");
+    for (String name : values.keySet()) {
+      if (!known.contains(name)) {
+        throw new IllegalArgumentException("Unknown option: " + name);
+      }
+    }
+    this.server = server;
+    this.readProportion = Double.parseDouble(values.getOrDefault("reads", "0.5"));
+    this.keyCount = Integer.parseInt(values.getOrDefault("keys", "1000"));
+    this.distribution = values.getOrDefault("distribution", "zipfian");
+    this.valueSize = Integer.parseInt(values.getOrDefault("valueSize", "100"));
+    this.binary = Boolean.parseBoolean(values.getOrDefault("binary", "false"));
+    this.threads = Integer.parseInt(values.getOrDefault("threads", "4"));
+    this.openLoop = values.getOrDefault("mode", "closed").equalsIgnoreCase("open");
+    this.rate = Double.parseDouble(values.getOrDefault("rate", "0"));
+    this.durationNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(values.getOrDefault("duration", "30")));
+    this.warmupNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(values.getOrDefault("warmup", "5")));
+    this.preload = Boolean.parseBoolean(values.getOrDefault("preload", "false"));
+    this.namespace = values.get("namespace");
+    if (openLoop && rate <= 0) {
+      throw new IllegalArgumentException("Open-loop mode requires a rate");
+    }
+    if (threads <= 0 || keyCount <= 0) {
+      throw new IllegalArgumentException("threads and keys must be positive");
+    }
+    this.readLatencies = new LatencyHistogram();
+    this.writeLatencies = new LatencyHistogram();
+    this.errors = new LongAdder();
+  }
+
+  /**
+   * Runs the workload and prints the report once it finishes.
+   *
+   * @throws InterruptedException if interrupted while waiting for the client threads
+   * @throws RemoteException if the namespace cannot be opened
+   */
+  public void run() throws InterruptedException, RemoteException {
+    if (namespace != null) {
+      server = server.namespace(namespace);
+    }
+    KeyChooser keyChooser = new KeyChooser(distribution, keyCount);
+    String value = jsonValue(valueSize);
+    BinaryValue binaryValue = BinaryValue.of(value.getBytes(StandardCharsets.UTF_8));
+    if (binary) {
+      System.out.println("Binary values: " + binaryValue);
+    }
+    if (preload) {
+      System.out.println("Preloading " + keyCount + " keys...");
+      for (int i = 0; i < keyCount; i++) {
+        send(false, KeyChooser.key(i), value, binaryValue);
+      }
+    }
+    System.out.println("Running " + (openLoop ? "open" : "closed") + "-loop load with " + threads
+            + " threads for " + TimeUnit.NANOSECONDS.toSeconds(durationNanos) + "s after "
+            + TimeUnit.NANOSECONDS.toSeconds(warmupNanos) + "s of warm-up");
+
+    long start = System.nanoTime();
+    long measureFrom = start + warmupNanos;
+    long end = measureFrom + durationNanos;
+    LongAdder completed = new LongAdder();
+    if (openLoop) {
+      runOpenLoop(keyChooser, value, binaryValue, start, measureFrom, end, completed);
+      report(completed.sum());
+      return;
+    }
+    // Each thread sends every threads-th request of the global schedule
+    long intervalNanos = rate > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) * threads / rate) : 0;
+    List<Thread> workers = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      long firstSend = start + (intervalNanos * t) / threads;
+      long seed = t;
+      Thread worker = new Thread(() -> runClient(keyChooser, value, binaryValue, seed, firstSend, intervalNanos,
+              measureFrom, end, completed));
+      worker.setDaemon(true);
+      workers.add(worker);
+      worker.start();
+    }
+    for (Thread worker : workers) {
+      worker.join();
+    }
+    report(completed.sum());
+  }
+
+  /**
+   * Schedules requests at the configured rate from the calling thread and sends them from a pool
+   * of client threads, until the end of the run. Returns once every scheduled request has been
+   * answered, so that the report counts all of them; while any are still outstanding, their
+   * number is printed every minute.
+   */
+  private void runOpenLoop(KeyChooser keyChooser, String value, BinaryValue binaryValue, long start,
+                           long measureFrom, long end, LongAdder completed) throws InterruptedException {
+    ExecutorService clients = Executors.newFixedThreadPool(threads);
+    double intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+    Random random = new Random(0);
+    AtomicLong outstanding = new AtomicLong();
+    for (long request = 0; ; request++) {
+      long intendedSend = start + (long) (request * intervalNanos);
+      if (intendedSend >= end) {
+        break;
+      }
+      long now = System.nanoTime();
+      if (intendedSend > now) {
+        LockSupport.parkNanos(intendedSend - now);
+      }
+      boolean read = random.nextDouble() < readProportion;
+      String key = read ? keyChooser.nextReadKey(random) : keyChooser.nextWriteKey(random);
+      outstanding.incrementAndGet();
+      clients.execute(() -> {
+        boolean succeeded = send(read, key, value, binaryValue);
+        record(read, succeeded, intendedSend, measureFrom, completed);
+        outstanding.decrementAndGet();
+      });
+    }
+    clients.shutdown();
+    while (!clients.awaitTermination(1, TimeUnit.MINUTES)) {
+      System.out.println("Waiting for " + outstanding.get() + " outstanding requests...");
+    }
+  }
+
+  /**
+   * Sends requests from one closed-loop client thread until the end of the run.
+   */
+  private void runClient(KeyChooser keyChooser, String value, BinaryValue binaryValue, long seed, long firstSend,
+                         long intervalNanos, long measureFrom, long end, LongAdder completed) {
+    Random random = new Random(seed);
+    long intendedSend = firstSend;
+    while (true) {
+      long now = System.nanoTime();
+      if (intervalNanos > 0) {
+        if (intendedSend > now) {
+          LockSupport.parkNanos(intendedSend - now);
+        }
+      } else {
+        intendedSend = now;
+      }
+      if (intendedSend >= end) {
+        return;
+      }
+      boolean read = random.nextDouble() < readProportion;
+      String key = read ? keyChooser.nextReadKey(random) : keyChooser.nextWriteKey(random);
+      boolean succeeded = send(read, key, value, binaryValue);
+      record(read, succeeded, intendedSend, measureFrom, completed);
+      intendedSend += intervalNanos;
+    }
+  }
+
+  private void record(boolean read, boolean succeeded, long intendedSend, long measureFrom, LongAdder completed) {
+    if (intendedSend < measureFrom) {
+      return;
+    }
+    (read ? readLatencies : writeLatencies).recordSince(intendedSend);
+    completed.increment();
+    if (!succeeded) {
+      errors.increment();
+    }
+  }
+
+  private boolean send(boolean read, String key, String value, BinaryValue binaryValue) {
+    try {
+      if (read && binary) {
+        BinaryValue stored = server.getBinary(key);
+        if (stored != null) {
+          stored.toBytes();
+        }
+        return true;
+      }
+      String response;
+      if (read) {
+        response = server.get(key);
+      } else {
+        response = binary ? server.putBinary(key, binaryValue) : server.put(key, value);
+      }
+      return !response.contains(FAILURE_MARKER) && !response.contains(REFUSED_MARKER);
+    } catch (RemoteException | ExecutionException | InterruptedException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Builds a value of the given size out of JSON records with varying fields, so that it
+   * compresses about as well as typical JSON documents do.
+   */
+  private static String jsonValue(int size) {
+    Random random = new Random(size);
+    StringBuilder value = new StringBuilder(size + 64);
+    for (int id = 0; value.length() < size; id++) {
+      value.append("{\"id\":").append(id).append(",\"name\":\"user").append(random.nextInt(100000))
+              .append("\",\"score\":").append(random.nextInt(1000)).append(",\"active\":")
+              .append(random.nextBoolean()).append('}');
+    }
+    value.setLength(size);
+    return value.toString();
+  }
+
+  private void report(long completed) {
+    double seconds = durationNanos / 1e9;
+    System.out.println("---------- Load report ----------");
+    System.out.printf("Completed requests : %d (%d failed)%n", completed, errors.sum());
+    System.out.printf("Throughput         : %.1f requests/s%n", completed / seconds);
+    if (rate > 0) {
+      System.out.printf("Offered rate       : %.1f requests/s%n", rate);
+    }
+    printLatencies("Reads ", readLatencies);
+    printLatencies("Writes", writeLatencies);
+  }
+
+  private static void printLatencies(String name, LatencyHistogram histogram) {
+    if (histogram.getCount() == 0) {
+      return;
+    }
+    System.out.printf("%s latency (ms)  : count=%d mean=%.3f p50=%.3f p90=%.3f p99=%.3f p99.9=%.3f max=%.3f%n",
+            name, histogram.getCount(), histogram.getMean() / 1e6,
+            histogram.getValueAtPercentile(50) / 1e6, histogram.getValueAtPercentile(90) / 1e6,
+            histogram.getValueAtPercentile(99) / 1e6, histogram.getValueAtPercentile(99.9) / 1e6,
+            histogram.getMax() / 1e6);
+  }
+}
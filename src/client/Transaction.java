@@ -0,0 +1,97 @@
+package client;
+
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+
+import server.Command;
+import server.Server;
+import server.TransactionCommand;
+import server.VersionedValue;
+
+/**
+ * Transaction buffers the reads and writes of a client until it commits.
+ * Reads go to the server once per key and record the version seen; writes stay local.
+ * On commit the whole transaction is sent as a single command, which the servers apply
+ * only if none of the keys read has been changed by someone else in the meantime.
+ */
+public class Transaction {
+
+  private final Server server;
+  private final String id;
+  private final Map<String, Long> readVersions;
+  private final Map<String, Command> writes;
+
+  /**
+   * Begins a Transaction against the specified server.
+   *
+   * @param server the remote server the transaction reads from and commits to
+   */
+  public Transaction(Server server) {
+    this.server = server;
+    this.id = UUID.randomUUID().toString();
+    this.readVersions = new HashMap<>();
+    this.writes = new LinkedHashMap<>();
+  }
+
+  /**
+   * Reads the value of the key as seen by this transaction, including its own buffered writes.
+   *
+   * @param key the key to read
+   * @return the value of the key, or null if it is absent
+   * @throws RemoteException if a remote communication error occurs
+   */
+  public String get(String key) throws RemoteException {
+    Command write = writes.get(key);
+    if (write != null) {
+      return write.getValue();
+    }
+    VersionedValue versioned = server.getVersioned(key);
+    readVersions.putIfAbsent(key, versioned.getVersion());
+    return versioned.getValue();
+  }
+
+  /**
+   * Buffers a write of the value to the key.
+   *
+   * @param key the key to update
+   * @param value the value to store
+   */
+  public void put(String key, String value) {
+    writes.remove(key);
+    writes.put(key, Command.put(key, value));
+  }
+
+  /**
+   * Buffers the removal of the key.
+   *
+   * @param key the key to remove
+   */
+  public void delete(String key) {
+    writes.remove(key);
+    writes.put(key, Command.delete(key));
+  }
+
+  /**
+   * Commits the transaction.
+   *
+   * @return a message indicating whether the transaction committed
+   * @throws RemoteException if a remote communication error occurs
+   */
+  public String commit() throws RemoteException, ExecutionException, InterruptedException {
+    return server.commit(new TransactionCommand(id, readVersions, new ArrayList<>(writes.values())));
+  }
+
+  /**
+   * Returns the unique identifier of the transaction.
+   *
+   * @return the transaction identifier
+   */
+  public String getId() {
+    return id;
+  }
+}
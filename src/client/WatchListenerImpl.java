@@ -0,0 +1,40 @@
+package client;
+
+import java.util.List;
+
+import server.ChangeEvent;
+import server.WatchListener;
+import shared.Logger;
+
+/**
+ * WatchListenerImpl is the client side of a watch subscription.
+ * It logs every change pushed by the server and remembers the index of the last one,
+ * so that the watch can be resumed from the following index after a reconnect.
+ */
+public class WatchListenerImpl implements WatchListener {
+
+  private static Logger logger = new Logger(System.out);
+  private volatile long lastIndex = -1;
+
+  @Override
+  public void onEvents(List<ChangeEvent> events) {
+    for (ChangeEvent event : events) {
+      logger.log("Watch event : " + event);
+      lastIndex = event.getIndex();
+    }
+  }
+
+  @Override
+  public void onTruncated(long oldestIndex) {
+    logger.log("Watch cancelled, client fell behind. Oldest index available : " + oldestIndex);
+  }
+
+  /**
+   * Returns the index of the last change received.
+   *
+   * @return the last index received, or -1 if none has been received
+   */
+  public long getLastIndex() {
+    return lastIndex;
+  }
+}
@@ -21,7 +21,7 @@ public class AcceptorRunnable implements Runnable {
   private static final int MIN_RESTART_DELAY = 2000; // Min delay (in ms) before the thread restarts
   private static final int MAX_RESTART_DELAY = 5000; // Max delay (in ms) before the thread restarts
 
-  private static Logger logger = new Logger(System.out);
+  private static Logger logger = new Logger(System.out, true);
 
   /**
    * Constructs an AcceptorRunnable with the specified Paxos server.
@@ -36,24 +36,24 @@ public class AcceptorRunnable implements Runnable {
 
   /**
    * Runs the acceptor thread, which simulates normal operation by sleeping for a random interval,
-   * then fails and restarts after a random delay. The thread will continue this cycle while it is running.
+   * then fails and restarts after a random delay. The thread will continue this cycle until it is interrupted.
    * It checks for the current number of acceptors that have failed before setting the failed state to
-   * false.
+   * false. Peers notice the failure through their heartbeats rather than by polling this thread.
    */
   @Override
   public void run() {
-    while (true) {
-      if (running.get()) {
-        try {
-          // Check the number of failed threads
-          synchronized (AcceptorState.class) {
-            while (!AcceptorState.canAcceptorSleep()) {
-              // Wait if maximum number of acceptors are already sleeping
-              AcceptorState.class.wait();
-            }
-            AcceptorState.setAcceptorSleeping(true);
+    while (!Thread.currentThread().isInterrupted()) {
+      try {
+        // Check the number of failed threads
+        synchronized (AcceptorState.class) {
+          while (!AcceptorState.canAcceptorSleep()) {
+            // Wait if maximum number of acceptors are already sleeping
+            AcceptorState.class.wait();
           }
+          AcceptorState.setAcceptorSleeping(true);
+        }
 
+        try {
           // Simulate normal operation
           Thread.sleep(random.nextInt((MAX_FAILURE_INTERVAL - MIN_FAILURE_INTERVAL) + 1) + MIN_FAILURE_INTERVAL);
 
@@ -63,21 +63,20 @@ public class AcceptorRunnable implements Runnable {
 
           // Restart after a random delay
           Thread.sleep(random.nextInt((MAX_RESTART_DELAY - MIN_RESTART_DELAY) + 1) + MIN_RESTART_DELAY);
-
+        } finally {
           // Set state to not sleeping
           synchronized (AcceptorState.class) {
             AcceptorState.setAcceptorSleeping(false);
             // Notify other waiting threads
             AcceptorState.class.notifyAll();
           }
-
-
           running.set(true);
-          log("Acceptor thread restarted");
-
-        } catch (InterruptedException e) {
-          e.printStackTrace();
         }
+        log("Acceptor thread restarted");
+
+      } catch (InterruptedException e) {
+        // Stop cycling when the server shuts down
+        Thread.currentThread().interrupt();
       }
     }
   }
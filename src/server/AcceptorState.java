@@ -9,7 +9,7 @@ package server;
 public class AcceptorState {
 
   private static int numAcceptorSleeping = 0;
-  private static final int MAX_SLEEPING_ACCEPTERS = 2;
+  private static int maxSleepingAcceptors = Integer.getInteger("paxos.maxSleepingAcceptors", 2);
 
   /**
    * Checks if an acceptor can enter the sleeping state.
@@ -19,7 +19,18 @@ public class AcceptorState {
    * @return true if an acceptor can sleep, false otherwise
    */
   public synchronized static boolean canAcceptorSleep() {
-    return numAcceptorSleeping < MAX_SLEEPING_ACCEPTERS;
+    return numAcceptorSleeping < maxSleepingAcceptors;
+  }
+
+  /**
+   * Sets the maximum number of acceptors allowed to sleep at the same time.
+   * The initial value is read from the {@code paxos.maxSleepingAcceptors} system property and defaults to 2.
+   *
+   * @param max the maximum number of sleeping acceptors
+   */
+  public synchronized static void setMaxSleepingAcceptors(int max) {
+    maxSleepingAcceptors = max;
+    AcceptorState.class.notifyAll();
   }
 
   /**
@@ -0,0 +1,64 @@
+package server;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Represents many writes agreed upon as a single Paxos command. Unlike a transaction it reads
+ * nothing and so can never conflict: learners always apply every write, in order. Bulk imports
+ * use it to pay for one consensus round per batch instead of one per key.
+ */
+public class BatchCommand implements Consumer<Map<String, String>>, Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private final List<Command> writes;
+
+  /**
+   * Constructs a BatchCommand with the specified writes.
+   *
+   * @param writes the writes to apply, in order
+   */
+  public BatchCommand(List<Command> writes) {
+    this.writes = new ArrayList<>(writes);
+  }
+
+  /**
+   * Creates a batch that puts every entry of the given map.
+   *
+   * @param entries the keys and values to store
+   * @return the batch command
+   */
+  public static BatchCommand putAll(Map<String, String> entries) {
+    List<Command> writes = new ArrayList<>(entries.size());
+    for (Map.Entry<String, String> entry : entries.entrySet()) {
+      writes.add(Command.put(entry.getKey(), entry.getValue()));
+    }
+    return new BatchCommand(writes);
+  }
+
+  /**
+   * Applies every write of the batch to the given map store.
+   *
+   * @param mapStore the store to update
+   */
+  @Override
+  public void accept(Map<String, String> mapStore) {
+    for (Command write : writes) {
+      write.accept(mapStore);
+    }
+  }
+
+  /**
+   * Returns the writes of the batch, in order.
+   *
+   * @return the writes
+   */
+  public List<Command> getWrites() {
+    return Collections.unmodifiableList(writes);
+  }
+}
@@ -0,0 +1,135 @@
+package server;
+
+import java.io.Serializable;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * An immutable binary value, compressed when that makes it smaller.
+ * <p>
+ * A value is compressed once, by whoever creates it, and then travels and is stored in that
+ * form: the command that carries it, every replica's store and every reply to a read share the
+ * same bytes, which are never re-encoded on the way. Only the reader decompresses it.
+ * Values of at least {@code paxos.compressionThreshold} bytes (default 1024) are compressed with
+ * DEFLATE at its fastest level.
+ */
+public class BinaryValue implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+  private static final int COMPRESSION_THRESHOLD = Integer.getInteger("paxos.compressionThreshold", 1024);
+
+  private final byte[] data;
+  private final int length;
+  private final boolean compressed;
+
+  private BinaryValue(byte[] data, int length, boolean compressed) {
+    this.data = data;
+    this.length = length;
+    this.compressed = compressed;
+  }
+
+  /**
+   * Creates a BinaryValue holding the given bytes, compressed if they reach the configured threshold.
+   *
+   * @param bytes the bytes of the value; the array is not copied and must not be changed afterwards
+   * @return the value
+   */
+  public static BinaryValue of(byte[] bytes) {
+    return of(bytes, COMPRESSION_THRESHOLD);
+  }
+
+  /**
+   * Creates a BinaryValue holding the given bytes, compressed if there are at least
+   * {@code threshold} of them and compression makes them smaller.
+   *
+   * @param bytes the bytes of the value; the array is not copied and must not be changed afterwards
+   * @param threshold the size from which the value is compressed
+   * @return the value
+   */
+  public static BinaryValue of(byte[] bytes, int threshold) {
+    if (bytes.length < threshold) {
+      return new BinaryValue(bytes, bytes.length, false);
+    }
+    Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+    try {
+      deflater.setInput(bytes);
+      deflater.finish();
+      byte[] buffer = new byte[bytes.length];
+      int size = 0;
+      while (!deflater.finished() && size < buffer.length) {
+        size += deflater.deflate(buffer, size, buffer.length - size);
+      }
+      if (!deflater.finished() || size >= bytes.length) {
+        return new BinaryValue(bytes, bytes.length, false); // incompressible
+      }
+      byte[] data = new byte[size];
+      System.arraycopy(buffer, 0, data, 0, size);
+      return new BinaryValue(data, bytes.length, true);
+    } finally {
+      deflater.end();
+    }
+  }
+
+  /**
+   * Returns the bytes of the value, decompressing them if needed.
+   *
+   * @return a copy of the value's bytes
+   * @throws IllegalStateException if the compressed bytes are corrupt
+   */
+  public byte[] toBytes() {
+    if (!compressed) {
+      return data.clone();
+    }
+    Inflater inflater = new Inflater(true);
+    try {
+      inflater.setInput(data);
+      byte[] bytes = new byte[length];
+      int size = 0;
+      while (size < length) {
+        int inflated = inflater.inflate(bytes, size, length - size);
+        if (inflated == 0 && (inflater.finished() || inflater.needsInput())) {
+          throw new IllegalStateException("Compressed value is truncated");
+        }
+        size += inflated;
+      }
+      return bytes;
+    } catch (DataFormatException e) {
+      throw new IllegalStateException("Compressed value is corrupt", e);
+    } finally {
+      inflater.end();
+    }
+  }
+
+  /**
+   * Returns the size of the value once decompressed.
+   *
+   * @return the length in bytes
+   */
+  public int getLength() {
+    return length;
+  }
+
+  /**
+   * Returns the size of the value as stored and sent.
+   *
+   * @return the stored length in bytes
+   */
+  public int getStoredLength() {
+    return data.length;
+  }
+
+  /**
+   * Checks if the value is held compressed.
+   *
+   * @return true if the value is compressed, false otherwise
+   */
+  public boolean isCompressed() {
+    return compressed;
+  }
+
+  @Override
+  public String toString() {
+    return "<" + length + " bytes" + (compressed ? ", " + data.length + " compressed" : "") + ">";
+  }
+}
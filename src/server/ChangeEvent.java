@@ -0,0 +1,74 @@
+package server;
+
+import java.io.Serializable;
+
+/**
+ * Represents a committed change that has been applied to the store by a learner.
+ * Each event carries the log index at which it was applied on the replica that emitted it,
+ * so a watcher can resume from the index following the last event it received.
+ */
+public class ChangeEvent implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private final long index;
+  private final Command.Type type;
+  private final String key;
+  private final String value;
+
+  /**
+   * Constructs a ChangeEvent for the specified log index and applied command.
+   *
+   * @param index the log index at which the change was applied
+   * @param type the kind of change
+   * @param key the key that changed
+   * @param value the new value, or null for a delete
+   */
+  public ChangeEvent(long index, Command.Type type, String key, String value) {
+    this.index = index;
+    this.type = type;
+    this.key = key;
+    this.value = value;
+  }
+
+  /**
+   * Returns the log index at which the change was applied.
+   *
+   * @return the log index
+   */
+  public long getIndex() {
+    return index;
+  }
+
+  /**
+   * Returns the kind of change.
+   *
+   * @return the change type
+   */
+  public Command.Type getType() {
+    return type;
+  }
+
+  /**
+   * Returns the key that changed.
+   *
+   * @return the key
+   */
+  public String getKey() {
+    return key;
+  }
+
+  /**
+   * Returns the new value of the key.
+   *
+   * @return the value, or null for a delete
+   */
+  public String getValue() {
+    return value;
+  }
+
+  @Override
+  public String toString() {
+    return "#" + index + " " + type + " " + key + (value == null ? "" : " " + value);
+  }
+}
@@ -0,0 +1,89 @@
+package server;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A bounded, in-memory log of the changes applied by a learner.
+ * Indexes start at 1 and increase by one for every applied change. Only the most recent
+ * {@code capacity} events are retained; older ones are overwritten, which bounds the memory
+ * used for watchers regardless of how many subscribers exist or how slow they are.
+ */
+public class ChangeLog {
+
+  private final ChangeEvent[] buffer;
+  private long nextIndex;
+
+  /**
+   * Constructs a ChangeLog that retains up to the given number of events.
+   *
+   * @param capacity the maximum number of events retained
+   */
+  public ChangeLog(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Change log capacity must be positive");
+    }
+    this.buffer = new ChangeEvent[capacity];
+    this.nextIndex = 1;
+  }
+
+  /**
+   * Appends the change described by the command and wakes up any waiting readers.
+   *
+   * @param command the command that was applied
+   * @return the log index assigned to the change
+   */
+  public synchronized long append(Command command) {
+    long index = nextIndex++;
+    buffer[(int) (index % buffer.length)] =
+            new ChangeEvent(index, command.getType(), command.getKey(), command.getBinaryValue() != null
+                    ? command.getBinaryValue().toString() : command.getValue());
+    notifyAll();
+    return index;
+  }
+
+  /**
+   * Returns the index of the oldest event still retained.
+   *
+   * @return the oldest retained index
+   */
+  public synchronized long getOldestIndex() {
+    return Math.max(1, nextIndex - buffer.length);
+  }
+
+  /**
+   * Returns the index that will be assigned to the next appended change.
+   *
+   * @return the next index
+   */
+  public synchronized long getNextIndex() {
+    return nextIndex;
+  }
+
+  /**
+   * Reads up to {@code maxEvents} events starting at {@code fromIndex}, waiting up to
+   * {@code timeoutMs} milliseconds for one to become available.
+   *
+   * @param fromIndex the index of the first event to read
+   * @param maxEvents the maximum number of events to return
+   * @param timeoutMs the maximum time to wait when no event is available
+   * @return the events read, possibly empty if the wait timed out
+   * @throws IndexOutOfBoundsException if {@code fromIndex} is older than the oldest retained event
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public synchronized List<ChangeEvent> read(long fromIndex, int maxEvents, long timeoutMs)
+          throws InterruptedException {
+    if (fromIndex >= nextIndex && timeoutMs > 0) {
+      wait(timeoutMs);
+    }
+    if (fromIndex < getOldestIndex()) {
+      throw new IndexOutOfBoundsException("Index " + fromIndex + " is no longer retained, oldest is "
+              + getOldestIndex());
+    }
+    List<ChangeEvent> events = new ArrayList<>();
+    for (long index = fromIndex; index < nextIndex && events.size() < maxEvents; index++) {
+      events.add(buffer[(int) (index % buffer.length)]);
+    }
+    return events;
+  }
+}
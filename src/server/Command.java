@@ -0,0 +1,151 @@
+package server;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Represents a single key-value operation agreed upon through Paxos.
+ * Unlike an anonymous lambda, a command knows which key it touches and how,
+ * which allows learners to publish the applied change to watchers.
+ */
+public class Command implements Consumer<Map<String, String>>, Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * The kind of operation carried by a command.
+   */
+  public enum Type {
+    PUT,
+    DELETE,
+    PUT_BINARY
+  }
+
+  private final Type type;
+  private final String key;
+  private final String value;
+  private final BinaryValue binaryValue;
+
+  /**
+   * Constructs a Command of the given type for the specified key and value.
+   *
+   * @param type the kind of operation
+   * @param key the key the operation applies to
+   * @param value the value to store, or null for a delete
+   */
+  public Command(Type type, String key, String value) {
+    this(type, key, value, null);
+  }
+
+  private Command(Type type, String key, String value, BinaryValue binaryValue) {
+    this.type = type;
+    this.key = key;
+    this.value = value;
+    this.binaryValue = binaryValue;
+  }
+
+  /**
+   * Creates a command that associates the value with the key.
+   *
+   * @param key the key to update
+   * @param value the value to store
+   * @return the put command
+   */
+  public static Command put(String key, String value) {
+    return new Command(Type.PUT, key, value);
+  }
+
+  /**
+   * Creates a command that associates a binary value with the key. The value is carried as is,
+   * so every replica stores the same, possibly compressed, bytes.
+   *
+   * @param key the key to update
+   * @param value the binary value to store
+   * @return the binary put command
+   */
+  public static Command putBinary(String key, BinaryValue value) {
+    return new Command(Type.PUT_BINARY, key, null, value);
+  }
+
+  /**
+   * Creates a command that removes the key.
+   *
+   * @param key the key to remove
+   * @return the delete command
+   */
+  public static Command delete(String key) {
+    return new Command(Type.DELETE, key, null);
+  }
+
+  /**
+   * Returns the same command for the key with the given prefix, as stored by a namespace.
+   *
+   * @param prefix the prefix to add to the key
+   * @return the prefixed command
+   */
+  public Command withKeyPrefix(String prefix) {
+    return new Command(type, prefix + key, value, binaryValue);
+  }
+
+  /**
+   * Returns the same command for the key without the given prefix, as seen from inside a namespace.
+   *
+   * @param prefix the prefix the key starts with
+   * @return the command without the prefix
+   */
+  public Command withoutKeyPrefix(String prefix) {
+    return new Command(type, key.substring(prefix.length()), value, binaryValue);
+  }
+
+  /**
+   * Applies this command to the given map store. A binary put removes any string value of the
+   * key; the binary value itself is kept by the learner's blob store.
+   *
+   * @param mapStore the store to update
+   */
+  @Override
+  public void accept(Map<String, String> mapStore) {
+    if (type == Type.PUT) {
+      mapStore.put(key, value);
+    } else {
+      mapStore.remove(key);
+    }
+  }
+
+  /**
+   * Returns the kind of operation carried by this command.
+   *
+   * @return the command type
+   */
+  public Type getType() {
+    return type;
+  }
+
+  /**
+   * Returns the key this command applies to.
+   *
+   * @return the key
+   */
+  public String getKey() {
+    return key;
+  }
+
+  /**
+   * Returns the value this command stores.
+   *
+   * @return the value, or null for a delete or a binary put
+   */
+  public String getValue() {
+    return value;
+  }
+
+  /**
+   * Returns the binary value this command stores.
+   *
+   * @return the binary value, or null unless this is a binary put
+   */
+  public BinaryValue getBinaryValue() {
+    return binaryValue;
+  }
+}
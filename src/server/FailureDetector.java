@@ -0,0 +1,115 @@
+package server;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * A phi-accrual failure detector. Instead of declaring a peer dead after a fixed timeout, it keeps
+ * a sliding window of the intervals between the peer's heartbeats and turns the time since the last
+ * one into a suspicion level, phi, which grows the longer the silence lasts relative to what the
+ * peer usually does. A phi of 1 means roughly a 10% chance that the peer is in fact still alive,
+ * 2 a 1% chance, and so on; the peer is suspected once phi passes the threshold.
+ * <p>
+ * The interval distribution is approximated by a normal distribution, as Akka and Cassandra do.
+ * Time is read from the clock given at construction, so all durations are in its units.
+ * A peer that has never answered a heartbeat is not suspected.
+ */
+public class FailureDetector {
+
+  private static final int WINDOW_SIZE = 100;
+  private static final double DEFAULT_THRESHOLD = 8;
+
+  /**
+   * The recent heartbeat history of one peer.
+   */
+  private static final class History {
+    private final long[] intervals = new long[WINDOW_SIZE];
+    private int count;
+    private int next;
+    private long sum;
+    private long sumOfSquares;
+    private boolean heard;
+    private long lastHeartbeat;
+
+    synchronized void add(long now) {
+      if (heard) {
+        long interval = now - lastHeartbeat;
+        if (count == WINDOW_SIZE) {
+          sum -= intervals[next];
+          sumOfSquares -= intervals[next] * intervals[next];
+        } else {
+          count++;
+        }
+        intervals[next] = interval;
+        sum += interval;
+        sumOfSquares += interval * interval;
+        next = (next + 1) % WINDOW_SIZE;
+      }
+      heard = true;
+      lastHeartbeat = now;
+    }
+
+    synchronized double phi(long now, long expectedInterval, long minStdDeviation) {
+      if (!heard) {
+        return 0;
+      }
+      double mean = count == 0 ? expectedInterval : (double) sum / count;
+      double variance = count == 0 ? 0 : (double) sumOfSquares / count - mean * mean;
+      double stdDeviation = Math.max(Math.sqrt(Math.max(variance, 0)), minStdDeviation);
+      double y = (now - lastHeartbeat - mean) / stdDeviation;
+      double e = Math.exp(-y * (1.5976 + 0.070566 * y * y));
+      return now - lastHeartbeat > mean ? -Math.log10(e / (1 + e)) : -Math.log10(1 - 1 / (1 + e));
+    }
+  }
+
+  private final LongSupplier clock;
+  private final long heartbeatInterval;
+  private final double threshold;
+  private final Map<String, History> histories;
+
+  /**
+   * Constructs a FailureDetector for peers sending heartbeats at the given interval. The
+   * suspicion threshold is read from the {@code paxos.phiThreshold} system property and defaults to 8.
+   *
+   * @param clock supplies the current time
+   * @param heartbeatInterval the expected time between heartbeats, in the units of the clock
+   */
+  public FailureDetector(LongSupplier clock, long heartbeatInterval) {
+    this.clock = clock;
+    this.heartbeatInterval = heartbeatInterval;
+    this.threshold = Double.parseDouble(System.getProperty("paxos.phiThreshold", String.valueOf(DEFAULT_THRESHOLD)));
+    this.histories = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Records a heartbeat answered by the given peer.
+   *
+   * @param peer the name of the peer
+   */
+  public void heartbeat(String peer) {
+    histories.computeIfAbsent(peer, name -> new History()).add(clock.getAsLong());
+  }
+
+  /**
+   * Returns the current suspicion level of the given peer.
+   *
+   * @param peer the name of the peer
+   * @return phi, 0 for a peer never heard from
+   */
+  public double phi(String peer) {
+    History history = histories.get(peer);
+    // Jitter below half an interval is not worth suspecting anyone over
+    return history == null ? 0 : history.phi(clock.getAsLong(), heartbeatInterval, heartbeatInterval / 2);
+  }
+
+  /**
+   * Checks if the given peer is suspected to have failed.
+   *
+   * @param peer the name of the peer
+   * @return true if the peer's phi is above the threshold, false otherwise
+   */
+  public boolean isSuspected(String peer) {
+    return phi(peer) > threshold;
+  }
+}
@@ -0,0 +1,56 @@
+package server;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Serves the metrics of a group of Paxos servers as plain text over HTTP.
+ * A GET on {@code /metrics} returns the concatenated {@link PaxosMetrics#scrape()} output,
+ * which is suitable for a Prometheus-style scraper or a quick look with curl.
+ */
+public class MetricsEndpoint {
+
+  private final HttpServer httpServer;
+
+  /**
+   * Constructs a MetricsEndpoint listening on the given port. The endpoint is not started.
+   *
+   * @param port the port to listen on
+   * @param metrics the metrics to serve
+   * @throws IOException if the port cannot be bound
+   */
+  public MetricsEndpoint(int port, List<PaxosMetrics> metrics) throws IOException {
+    httpServer = HttpServer.create(new InetSocketAddress(port), 0);
+    httpServer.createContext("/metrics", exchange -> {
+      StringBuilder body = new StringBuilder();
+      for (PaxosMetrics serverMetrics : metrics) {
+        body.append(serverMetrics.scrape());
+      }
+      byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+      exchange.sendResponseHeaders(200, bytes.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(bytes);
+      }
+    });
+  }
+
+  /**
+   * Starts serving requests on a background thread.
+   */
+  public void start() {
+    httpServer.start();
+  }
+
+  /**
+   * Stops serving requests.
+   */
+  public void stop() {
+    httpServer.stop(0);
+  }
+}
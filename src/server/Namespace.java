@@ -0,0 +1,307 @@
+package server;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.regex.Pattern;
+
+/**
+ * A tenant's share of the store, with its limits, its usage and its request counters.
+ * <p>
+ * Namespaced keys are stored as {@code <namespace>/<key>}; every other key belongs to the
+ * {@value #DEFAULT} namespace. Clients work inside a namespace through the view returned by
+ * {@link Server#namespace(String)}, which adds and strips the prefix for them.
+ * <p>
+ * Only declared namespaces exist, so that clients cannot create any by naming them: those listed
+ * in the comma-separated {@code paxos.namespaces} system property, and those that have a limit of
+ * their own set. A key whose prefix names no declared namespace is a plain key of the
+ * {@value #DEFAULT} namespace. Every server of a cluster must declare the same namespaces.
+ * <p>
+ * Limits are checked by the proposing server before a write enters a Paxos round, so a tenant
+ * that is over its quota or rate costs the cluster nothing. Usage is kept by each learner as it
+ * applies writes. Since the check runs against the proposer's applied usage, concurrent writes
+ * still in their rounds can overshoot a quota by at most their own size. Sizes are counted in
+ * characters of the key and value, or stored bytes for binary values. Declared namespaces other
+ * than {@value #DEFAULT} also keep the set of their keys, so that they can be exported without
+ * reading the rest of the store.
+ * <p>
+ * Limits are read from the system properties {@code paxos.namespace.<name>.maxKeys},
+ * {@code .maxBytes}, {@code .writeRate} (writes per second) and {@code .writeBurst}, each falling
+ * back to the same property without the name, e.g. {@code paxos.namespace.maxKeys}, which applies
+ * to every namespace. A limit of 0 means unlimited, and the burst defaults to one second of writes.
+ */
+public class Namespace {
+
+  /**
+   * The namespace of keys stored without a namespace prefix.
+   */
+  public static final String DEFAULT = "default";
+
+  private static final char SEPARATOR = '/';
+  private static final Pattern VALID_NAME = Pattern.compile("[A-Za-z0-9_-]+");
+  private static final String PROPERTY_PREFIX = "paxos.namespace.";
+  private static final List<String> LIMITS = Arrays.asList("maxKeys", "maxBytes", "writeRate", "writeBurst");
+
+  private final String name;
+  private final long maxKeys;
+  private final long maxBytes;
+  private final double writeRate;
+  private final TokenBucket writeBucket;
+  private final AtomicLong keyCount;
+  private final AtomicLong byteCount;
+  private final LongAdder readCount;
+  private final LongAdder writeCount;
+  private final LongAdder throttledCount;
+  private final LongAdder overQuotaCount;
+  private final Set<String> keys;
+
+  /**
+   * Constructs a Namespace with the given limits.
+   *
+   * @param name the name of the namespace
+   * @param maxKeys the maximum number of keys, or 0 for no limit
+   * @param maxBytes the maximum size of all keys and values, or 0 for no limit
+   * @param writeRate the maximum sustained writes per second, or 0 for no limit
+   * @param writeBurst the number of writes allowed in a burst
+   * @param nanoClock supplies the current time in nanoseconds, for the rate limit
+   */
+  public Namespace(String name, long maxKeys, long maxBytes, double writeRate, double writeBurst,
+                   LongSupplier nanoClock) {
+    this.name = name;
+    this.maxKeys = maxKeys;
+    this.maxBytes = maxBytes;
+    this.writeRate = writeRate;
+    this.writeBucket = writeRate > 0 ? new TokenBucket(writeRate, Math.max(writeBurst, 1), nanoClock) : null;
+    this.keyCount = new AtomicLong();
+    this.byteCount = new AtomicLong();
+    this.readCount = new LongAdder();
+    this.writeCount = new LongAdder();
+    this.throttledCount = new LongAdder();
+    this.overQuotaCount = new LongAdder();
+    this.keys = name.equals(DEFAULT) ? null : ConcurrentHashMap.newKeySet();
+  }
+
+  /**
+   * Constructs a Namespace with the limits set through system properties.
+   *
+   * @param name the name of the namespace
+   * @param nanoClock supplies the current time in nanoseconds, for the rate limit
+   * @return the namespace
+   * @throws IllegalArgumentException if a property is not a number
+   */
+  public static Namespace fromSystemProperties(String name, LongSupplier nanoClock) {
+    double writeRate = Double.parseDouble(property(name, "writeRate", "0"));
+    return new Namespace(name, Long.parseLong(property(name, "maxKeys", "0")),
+            Long.parseLong(property(name, "maxBytes", "0")), writeRate,
+            Double.parseDouble(property(name, "writeBurst", String.valueOf(writeRate))), nanoClock);
+  }
+
+  private static String property(String name, String limit, String defaultValue) {
+    return System.getProperty(PROPERTY_PREFIX + name + "." + limit,
+            System.getProperty(PROPERTY_PREFIX + limit, defaultValue));
+  }
+
+  /**
+   * Returns the names of the namespaces declared through system properties, always including
+   * the {@value #DEFAULT} namespace.
+   *
+   * @return the declared names, sorted
+   * @throws IllegalArgumentException if a declared name is invalid
+   */
+  public static Set<String> declaredNames() {
+    Set<String> names = new TreeSet<>();
+    names.add(DEFAULT);
+    for (String name : System.getProperty("paxos.namespaces", "").split(",")) {
+      if (!name.trim().isEmpty()) {
+        names.add(name.trim());
+      }
+    }
+    for (String property : System.getProperties().stringPropertyNames()) {
+      int limit = property.lastIndexOf('.');
+      if (property.startsWith(PROPERTY_PREFIX) && limit > PROPERTY_PREFIX.length()
+              && LIMITS.contains(property.substring(limit + 1))) {
+        names.add(property.substring(PROPERTY_PREFIX.length(), limit));
+      }
+    }
+    for (String name : names) {
+      validateName(name);
+    }
+    return names;
+  }
+
+  /**
+   * Returns the name a stored key is prefixed with. It is the key's namespace only if a namespace
+   * of that name is declared; otherwise the key belongs to the {@value #DEFAULT} namespace.
+   *
+   * @param key the stored key
+   * @return the prefix name, or {@value #DEFAULT} for a key without a prefix
+   */
+  public static String nameOf(String key) {
+    int separator = key.indexOf(SEPARATOR);
+    return separator > 0 ? key.substring(0, separator) : DEFAULT;
+  }
+
+  /**
+   * Returns the prefix of the stored keys of a namespace.
+   *
+   * @param name the namespace name
+   * @return the prefix to put in front of the namespace's keys
+   */
+  public static String prefixOf(String name) {
+    return name + SEPARATOR;
+  }
+
+  /**
+   * Checks that a namespace name is made of letters, digits, underscores and hyphens only.
+   *
+   * @param name the namespace name
+   * @throws IllegalArgumentException if the name is invalid
+   */
+  public static void validateName(String name) {
+    if (name == null || !VALID_NAME.matcher(name).matches()) {
+      throw new IllegalArgumentException("Invalid namespace name '" + name
+              + "'; use letters, digits, underscores and hyphens");
+    }
+  }
+
+  /**
+   * Decides whether writes may be proposed, taking one token per write from the rate limit.
+   *
+   * @param addedKeys the number of keys the writes add, negative if they remove more than they add
+   * @param addedBytes the number of bytes the writes add, negative if they free more than they add
+   * @param writes the number of writes
+   * @return null if the writes may be proposed, otherwise the reason they are refused: one asking
+   *         to try again when over the rate, or one saying the write is refused when over a quota,
+   *         which retrying will not change
+   */
+  public String admitWrites(long addedKeys, long addedBytes, int writes) {
+    if (addedKeys > 0 && maxKeys > 0 && keyCount.get() + addedKeys > maxKeys) {
+      overQuotaCount.increment();
+      return "Namespace " + name + " is over its quota of " + maxKeys + " keys. Write refused.";
+    }
+    if (addedBytes > 0 && maxBytes > 0 && byteCount.get() + addedBytes > maxBytes) {
+      overQuotaCount.increment();
+      return "Namespace " + name + " is over its quota of " + maxBytes + " bytes. Write refused.";
+    }
+    if (writeBucket != null && !writeBucket.tryAcquire(writes)) {
+      throttledCount.increment();
+      return "Namespace " + name + " is over its rate of " + writeRate + " writes/s. Please try again.";
+    }
+    writeCount.add(writes);
+    return null;
+  }
+
+  /**
+   * Records a change in the keys and bytes the namespace uses, as a learner applies a write.
+   *
+   * @param keyDelta the change in the number of keys
+   * @param byteDelta the change in the number of bytes
+   */
+  public void recordUsage(long keyDelta, long byteDelta) {
+    keyCount.addAndGet(keyDelta);
+    byteCount.addAndGet(byteDelta);
+  }
+
+  /**
+   * Records that a learner stored or removed a key of the namespace.
+   *
+   * @param key the stored key, with its namespace prefix
+   * @param exists true if the key is now stored, false if it was removed
+   */
+  public void recordKey(String key, boolean exists) {
+    if (keys == null) {
+      return;
+    }
+    if (exists) {
+      keys.add(key);
+    } else {
+      keys.remove(key);
+    }
+  }
+
+  /**
+   * Returns the keys stored in the namespace. The set is live and its iterators tolerate
+   * concurrent writes.
+   *
+   * @return the stored keys, with their namespace prefix, or null for the {@value #DEFAULT}
+   *         namespace, which does not keep them
+   */
+  public Set<String> getKeys() {
+    return keys;
+  }
+
+  /**
+   * Counts a read of a key of the namespace.
+   */
+  public void recordRead() {
+    readCount.increment();
+  }
+
+  /**
+   * Returns the name of the namespace.
+   *
+   * @return the name
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Returns the number of keys the namespace holds.
+   *
+   * @return the key count
+   */
+  public long getKeyCount() {
+    return keyCount.get();
+  }
+
+  /**
+   * Returns the size of the namespace's keys and values.
+   *
+   * @return the size in bytes
+   */
+  public long getByteCount() {
+    return byteCount.get();
+  }
+
+  /**
+   * Returns the number of reads served.
+   *
+   * @return the read count
+   */
+  public long getReadCount() {
+    return readCount.sum();
+  }
+
+  /**
+   * Returns the number of writes admitted for proposal.
+   *
+   * @return the write count
+   */
+  public long getWriteCount() {
+    return writeCount.sum();
+  }
+
+  /**
+   * Returns the number of write requests refused by the rate limit.
+   *
+   * @return the throttled count
+   */
+  public long getThrottledCount() {
+    return throttledCount.sum();
+  }
+
+  /**
+   * Returns the number of write requests refused for exceeding a quota.
+   *
+   * @return the over-quota count
+   */
+  public long getOverQuotaCount() {
+    return overQuotaCount.sum();
+  }
+}
@@ -0,0 +1,165 @@
+package server;
+
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * The store as seen from inside one namespace. Every key a client passes in is stored under the
+ * namespace's prefix, and every key handed back, by exports and watches, has it stripped again,
+ * so a tenant works with plain keys and cannot reach those of other namespaces.
+ * <p>
+ * Exports and watches are identified by ids that are global to the server, so the server records
+ * the namespace each was opened in and the view refuses any other, and it cannot be used to reach
+ * another namespace. An export of the namespace reads only the namespace's own keys.
+ * Otherwise the view only translates keys; limits are enforced by the server that proposes the writes.
+ */
+public class NamespaceView implements Server {
+
+  private final String name;
+  private final String prefix;
+  private final PaxosServerImpl store;
+
+  /**
+   * Constructs a NamespaceView of the given store.
+   *
+   * @param name the name of the namespace
+   * @param store the whole store
+   */
+  public NamespaceView(String name, PaxosServerImpl store) {
+    this.name = name;
+    this.prefix = Namespace.prefixOf(name);
+    this.store = store;
+  }
+
+  @Override
+  public String get(String key) throws RemoteException, ExecutionException, InterruptedException {
+    return store.get(prefix + key);
+  }
+
+  @Override
+  public String put(String key, String value) throws RemoteException, ExecutionException, InterruptedException {
+    return store.put(prefix + key, value);
+  }
+
+  @Override
+  public String delete(String key) throws RemoteException, ExecutionException, InterruptedException {
+    return store.delete(prefix + key);
+  }
+
+  @Override
+  public String putBinary(String key, BinaryValue value)
+          throws RemoteException, ExecutionException, InterruptedException {
+    return store.putBinary(prefix + key, value);
+  }
+
+  @Override
+  public BinaryValue getBinary(String key) throws RemoteException {
+    return store.getBinary(prefix + key);
+  }
+
+  @Override
+  public String putAll(Map<String, String> entries)
+          throws RemoteException, ExecutionException, InterruptedException {
+    Map<String, String> prefixed = new LinkedHashMap<>();
+    for (Map.Entry<String, String> entry : entries.entrySet()) {
+      prefixed.put(prefix + entry.getKey(), entry.getValue());
+    }
+    return store.putAll(prefixed);
+  }
+
+  @Override
+  public long openExport() {
+    return store.openExport(name);
+  }
+
+  @Override
+  public List<Command> exportChunk(long exportId, int maxEntries) {
+    store.checkExportNamespace(exportId, name);
+    return strip(store.exportChunk(exportId, maxEntries));
+  }
+
+  @Override
+  public List<Command> finishExport(long exportId) {
+    store.checkExportNamespace(exportId, name);
+    return strip(store.finishExport(exportId));
+  }
+
+  @Override
+  public VersionedValue getVersioned(String key) throws RemoteException {
+    return store.getVersioned(prefix + key);
+  }
+
+  @Override
+  public String commit(TransactionCommand transaction)
+          throws RemoteException, ExecutionException, InterruptedException {
+    return store.commit(transaction.withKeyPrefix(prefix));
+  }
+
+  @Override
+  public long watch(String keyOrPrefix, long fromIndex, WatchListener listener) {
+    return store.watch(name, prefix + keyOrPrefix, fromIndex, new StrippingListener(listener));
+  }
+
+  @Override
+  public void unwatch(long subscriptionId) {
+    store.checkWatchNamespace(subscriptionId, name);
+    store.unwatch(subscriptionId);
+  }
+
+  /**
+   * Returns this view when asked for its own namespace. A view cannot reach any other namespace;
+   * ask the server for it instead.
+   *
+   * @throws IllegalArgumentException if the name is not that of this view's namespace
+   */
+  @Override
+  public Server namespace(String name) {
+    if (!name.equals(this.name)) {
+      throw new IllegalArgumentException("Already in namespace " + this.name + ", cannot switch to " + name);
+    }
+    return this;
+  }
+
+  /**
+   * Keeps the entries of this namespace, without the prefix.
+   */
+  private List<Command> strip(List<Command> entries) {
+    List<Command> own = new ArrayList<>();
+    for (Command entry : entries) {
+      if (entry.getKey().startsWith(prefix)) {
+        own.add(entry.withoutKeyPrefix(prefix));
+      }
+    }
+    return own;
+  }
+
+  /**
+   * Passes watched changes on to the client's listener with the namespace prefix stripped.
+   */
+  private final class StrippingListener implements WatchListener {
+    private final WatchListener listener;
+
+    StrippingListener(WatchListener listener) {
+      this.listener = listener;
+    }
+
+    @Override
+    public void onEvents(List<ChangeEvent> events) throws RemoteException {
+      List<ChangeEvent> stripped = new ArrayList<>(events.size());
+      for (ChangeEvent event : events) {
+        stripped.add(new ChangeEvent(event.getIndex(), event.getType(), event.getKey().substring(prefix.length()),
+                event.getValue()));
+      }
+      listener.onEvents(stripped);
+    }
+
+    @Override
+    public void onTruncated(long oldestIndex) throws RemoteException {
+      listener.onTruncated(oldestIndex);
+    }
+  }
+}
@@ -0,0 +1,370 @@
+package server;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+import shared.LatencyHistogram;
+
+/**
+ * Collects the counters and latency histograms of a single Paxos server.
+ * Every update is lock-free, so instrumentation can sit on the request and consensus paths.
+ * The metrics are exposed through JMX as a {@link PaxosMetricsMBean} and as plain text
+ * through {@link #scrape()}, which the {@link MetricsEndpoint} serves over HTTP.
+ */
+public class PaxosMetrics implements PaxosMetricsMBean {
+
+  /**
+   * The operations and consensus phases whose latency is tracked. PROPOSE, PHASE_ONE,
+   * QUORUM_WAIT and PHASE_TWO are timed by the proposer; PREPARE, ACCEPT and LEARN time the
+   * handling of the corresponding request on the receiving server.
+   */
+  public enum Phase {
+    GET,
+    PUT,
+    DELETE,
+    COMMIT,
+    PUT_ALL,
+    PROPOSE,
+    PHASE_ONE,
+    QUORUM_WAIT,
+    PHASE_TWO,
+    PREPARE,
+    ACCEPT,
+    LEARN
+  }
+
+  private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+  private static final String[] QUANTILE_LABELS = {"0.5", "0.9", "0.99", "0.999"};
+
+  private final int port;
+  private final Map<Phase, LatencyHistogram> phaseLatencies;
+  private final Map<String, LatencyHistogram> peerLatencies;
+  private final LongAdder requestCount;
+  private final LongAdder rejectedRequestCount;
+  private final LongAdder forwardedRequestCount;
+  private final LongAdder proposalCount;
+  private final LongAdder failedProposalCount;
+  private final LongAdder prepareRejectedCount;
+  private final LongAdder acceptRejectedCount;
+  private final LongAdder remoteErrorCount;
+  private volatile long appliedIndex;
+  private volatile Supplier<Map<String, Long>> replicaAppliedIndexes;
+  private volatile IntSupplier inFlightRequests;
+  private volatile IntSupplier leaderPort;
+  private volatile IntSupplier suspectedPeers;
+  private volatile Supplier<Collection<Namespace>> namespaces;
+
+  /**
+   * Constructs an empty PaxosMetrics for the server at the given port.
+   *
+   * @param port the port of the server the metrics belong to
+   */
+  public PaxosMetrics(int port) {
+    this.port = port;
+    phaseLatencies = new EnumMap<>(Phase.class);
+    for (Phase phase : Phase.values()) {
+      phaseLatencies.put(phase, new LatencyHistogram());
+    }
+    peerLatencies = new ConcurrentHashMap<>();
+    requestCount = new LongAdder();
+    rejectedRequestCount = new LongAdder();
+    forwardedRequestCount = new LongAdder();
+    proposalCount = new LongAdder();
+    failedProposalCount = new LongAdder();
+    prepareRejectedCount = new LongAdder();
+    acceptRejectedCount = new LongAdder();
+    remoteErrorCount = new LongAdder();
+    replicaAppliedIndexes = ConcurrentHashMap::new;
+    inFlightRequests = () -> 0;
+    leaderPort = () -> port;
+    suspectedPeers = () -> 0;
+    namespaces = Collections::emptyList;
+  }
+
+  /**
+   * Records the time elapsed since {@code startNanos} for the given phase.
+   *
+   * @param phase the phase being timed
+   * @param startNanos the value of {@link System#nanoTime()} when the phase started
+   */
+  public void recordPhase(Phase phase, long startNanos) {
+    phaseLatencies.get(phase).recordSince(startNanos);
+  }
+
+  /**
+   * Records the latency of a call made to a peer.
+   *
+   * @param peer the name of the peer called
+   * @param rpc the name of the call
+   * @param startNanos the value of {@link System#nanoTime()} when the call started
+   */
+  public void recordPeerCall(String peer, String rpc, long startNanos) {
+    peerLatencies.computeIfAbsent(peer + "/" + rpc, name -> new LatencyHistogram()).recordSince(startNanos);
+  }
+
+  /**
+   * Counts a client request.
+   */
+  public void incrementRequests() {
+    requestCount.increment();
+  }
+
+  /**
+   * Counts a client request turned away because the server was at its concurrency limit.
+   */
+  public void incrementRejectedRequests() {
+    rejectedRequestCount.increment();
+  }
+
+  /**
+   * Counts a write forwarded to the leader instead of being proposed by this server.
+   */
+  public void incrementForwardedRequests() {
+    forwardedRequestCount.increment();
+  }
+
+  /**
+   * Counts a Paxos round started by this server once it is over, and whether it got its own
+   * value chosen.
+   *
+   * @param succeeded true if both phases gathered their quorum for the round's own value, false otherwise
+   */
+  public void incrementProposals(boolean succeeded) {
+    proposalCount.increment();
+    if (!succeeded) {
+      failedProposalCount.increment();
+    }
+  }
+
+  /**
+   * Counts a prepare request rejected by this server's acceptor.
+   */
+  public void incrementPrepareRejected() {
+    prepareRejectedCount.increment();
+  }
+
+  /**
+   * Counts an accept request rejected by this server's acceptor.
+   */
+  public void incrementAcceptRejected() {
+    acceptRejectedCount.increment();
+  }
+
+  /**
+   * Counts a peer call that failed with a remote exception.
+   */
+  public void incrementRemoteErrors() {
+    remoteErrorCount.increment();
+  }
+
+  /**
+   * Sets the log index of the last change applied by this server's learner.
+   *
+   * @param index the applied index
+   */
+  public void setAppliedIndex(long index) {
+    appliedIndex = index;
+  }
+
+  /**
+   * Sets the source of the applied index of every replica, keyed by replica name.
+   * It is queried on each scrape to report how far each replica lags behind the most advanced one.
+   *
+   * @param source supplies the applied index of each replica
+   */
+  public void setReplicaAppliedIndexes(Supplier<Map<String, Long>> source) {
+    replicaAppliedIndexes = source;
+  }
+
+  /**
+   * Sets the source of the number of client requests currently running.
+   *
+   * @param source supplies the number of requests in flight
+   */
+  public void setInFlightRequests(IntSupplier source) {
+    inFlightRequests = source;
+  }
+
+  /**
+   * Sets the sources of the leader this server currently follows and of the number of peers its
+   * failure detector suspects.
+   *
+   * @param leader supplies the port of the current leader
+   * @param suspected supplies the number of suspected peers
+   */
+  public void setLeadership(IntSupplier leader, IntSupplier suspected) {
+    leaderPort = leader;
+    suspectedPeers = suspected;
+  }
+
+  /**
+   * Sets the source of the namespaces this server has seen, whose usage and request counts are
+   * reported on each scrape.
+   *
+   * @param source supplies the namespaces
+   */
+  public void setNamespaces(Supplier<Collection<Namespace>> source) {
+    namespaces = source;
+  }
+
+  @Override
+  public long getRequestCount() {
+    return requestCount.sum();
+  }
+
+  @Override
+  public long getRejectedRequestCount() {
+    return rejectedRequestCount.sum();
+  }
+
+  @Override
+  public int getInFlightRequests() {
+    return inFlightRequests.getAsInt();
+  }
+
+  @Override
+  public long getForwardedRequestCount() {
+    return forwardedRequestCount.sum();
+  }
+
+  @Override
+  public int getLeaderPort() {
+    return leaderPort.getAsInt();
+  }
+
+  @Override
+  public int getSuspectedPeerCount() {
+    return suspectedPeers.getAsInt();
+  }
+
+  @Override
+  public long getProposalCount() {
+    return proposalCount.sum();
+  }
+
+  @Override
+  public long getFailedProposalCount() {
+    return failedProposalCount.sum();
+  }
+
+  @Override
+  public long getPrepareRejectedCount() {
+    return prepareRejectedCount.sum();
+  }
+
+  @Override
+  public long getAcceptRejectedCount() {
+    return acceptRejectedCount.sum();
+  }
+
+  @Override
+  public long getRemoteErrorCount() {
+    return remoteErrorCount.sum();
+  }
+
+  @Override
+  public long getAppliedIndex() {
+    return appliedIndex;
+  }
+
+  @Override
+  public long getPaxosRoundP50Micros() {
+    return phaseLatencies.get(Phase.PROPOSE).getValueAtPercentile(50) / 1000;
+  }
+
+  @Override
+  public long getPaxosRoundP99Micros() {
+    return phaseLatencies.get(Phase.PROPOSE).getValueAtPercentile(99) / 1000;
+  }
+
+  @Override
+  public long getQuorumWaitP99Micros() {
+    return phaseLatencies.get(Phase.QUORUM_WAIT).getValueAtPercentile(99) / 1000;
+  }
+
+  @Override
+  public String scrape() {
+    String server = "port=\"" + port + "\"";
+    StringBuilder out = new StringBuilder();
+    appendValue(out, "paxos_requests_total", server, getRequestCount());
+    appendValue(out, "paxos_requests_rejected_total", server, getRejectedRequestCount());
+    appendValue(out, "paxos_requests_in_flight", server, getInFlightRequests());
+    appendValue(out, "paxos_requests_forwarded_total", server, getForwardedRequestCount());
+    appendValue(out, "paxos_leader_port", server, getLeaderPort());
+    appendValue(out, "paxos_peers_suspected", server, getSuspectedPeerCount());
+    appendValue(out, "paxos_proposals_total", server, getProposalCount());
+    appendValue(out, "paxos_proposals_failed_total", server, getFailedProposalCount());
+    appendValue(out, "paxos_prepare_rejected_total", server, getPrepareRejectedCount());
+    appendValue(out, "paxos_accept_rejected_total", server, getAcceptRejectedCount());
+    appendValue(out, "paxos_remote_errors_total", server, getRemoteErrorCount());
+    for (Map.Entry<Phase, LatencyHistogram> entry : phaseLatencies.entrySet()) {
+      appendHistogram(out, "paxos_phase_latency_us",
+              server + ",phase=\"" + entry.getKey().name().toLowerCase() + "\"", entry.getValue());
+    }
+    for (Map.Entry<String, LatencyHistogram> entry : peerLatencies.entrySet()) {
+      String[] peerAndRpc = entry.getKey().split("/", 2);
+      appendHistogram(out, "paxos_peer_rpc_latency_us",
+              server + ",peer=\"" + escapeLabel(peerAndRpc[0]) + "\",rpc=\"" + escapeLabel(peerAndRpc[1]) + "\"",
+              entry.getValue());
+    }
+    Map<String, Long> replicas = replicaAppliedIndexes.get();
+    long maxApplied = appliedIndex;
+    for (long index : replicas.values()) {
+      maxApplied = Math.max(maxApplied, index);
+    }
+    for (Map.Entry<String, Long> entry : replicas.entrySet()) {
+      String replica = server + ",replica=\"" + escapeLabel(entry.getKey()) + "\"";
+      appendValue(out, "paxos_applied_index", replica, entry.getValue());
+      appendValue(out, "paxos_applied_index_lag", replica, maxApplied - entry.getValue());
+    }
+    for (Namespace namespace : namespaces.get()) {
+      String labels = server + ",namespace=\"" + escapeLabel(namespace.getName()) + "\"";
+      appendValue(out, "paxos_namespace_keys", labels, namespace.getKeyCount());
+      appendValue(out, "paxos_namespace_bytes", labels, namespace.getByteCount());
+      appendValue(out, "paxos_namespace_reads_total", labels, namespace.getReadCount());
+      appendValue(out, "paxos_namespace_writes_total", labels, namespace.getWriteCount());
+      appendValue(out, "paxos_namespace_throttled_total", labels, namespace.getThrottledCount());
+      appendValue(out, "paxos_namespace_over_quota_total", labels, namespace.getOverQuotaCount());
+    }
+    return out.toString();
+  }
+
+  /**
+   * Escapes a label value as the text exposition format requires: backslashes, double quotes
+   * and line feeds are written as {@code \\}, {@code \"} and {@code \n}.
+   */
+  static String escapeLabel(String value) {
+    StringBuilder escaped = null;
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '\\' || c == '"' || c == '\n') {
+        if (escaped == null) {
+          escaped = new StringBuilder(value.length() + 8).append(value, 0, i);
+        }
+        escaped.append('\\').append(c == '\n' ? 'n' : c);
+      } else if (escaped != null) {
+        escaped.append(c);
+      }
+    }
+    return escaped != null ? escaped.toString() : value;
+  }
+
+  private static void appendValue(StringBuilder out, String name, String labels, long value) {
+    out.append(name).append('{').append(labels).append("} ").append(value).append('\n');
+  }
+
+  private static void appendHistogram(StringBuilder out, String name, String labels, LatencyHistogram histogram) {
+    for (int i = 0; i < PERCENTILES.length; i++) {
+      appendValue(out, name, labels + ",quantile=\"" + QUANTILE_LABELS[i] + "\"",
+              histogram.getValueAtPercentile(PERCENTILES[i]) / 1000);
+    }
+    appendValue(out, name + "_max", labels, histogram.getMax() / 1000);
+    appendValue(out, name + "_count", labels, histogram.getCount());
+  }
+}
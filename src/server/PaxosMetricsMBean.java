@@ -0,0 +1,121 @@
+package server;
+
+/**
+ * JMX management interface exposing the metrics of a Paxos server.
+ * Latencies are reported in microseconds.
+ */
+public interface PaxosMetricsMBean {
+
+  /**
+   * Returns the number of client requests received, of any kind.
+   *
+   * @return the request count
+   */
+  long getRequestCount();
+
+  /**
+   * Returns the number of client requests turned away because the server was busy.
+   *
+   * @return the rejected request count
+   */
+  long getRejectedRequestCount();
+
+  /**
+   * Returns the number of client requests currently running.
+   *
+   * @return the requests in flight
+   */
+  int getInFlightRequests();
+
+  /**
+   * Returns the number of writes forwarded to the leader.
+   *
+   * @return the forwarded request count
+   */
+  long getForwardedRequestCount();
+
+  /**
+   * Returns the port of the replica this server currently considers the leader.
+   *
+   * @return the leader's port
+   */
+  int getLeaderPort();
+
+  /**
+   * Returns the number of peers the failure detector currently suspects.
+   *
+   * @return the suspected peer count
+   */
+  int getSuspectedPeerCount();
+
+  /**
+   * Returns the number of Paxos rounds this server started as a proposer.
+   *
+   * @return the proposal count
+   */
+  long getProposalCount();
+
+  /**
+   * Returns the number of Paxos rounds that did not get their own value chosen, because either
+   * phase missed its quorum or phase 2 completed a value accepted by an earlier round.
+   *
+   * @return the failed proposal count
+   */
+  long getFailedProposalCount();
+
+  /**
+   * Returns the number of prepare requests this server's acceptor rejected.
+   *
+   * @return the rejected prepare count
+   */
+  long getPrepareRejectedCount();
+
+  /**
+   * Returns the number of accept requests this server's acceptor rejected.
+   *
+   * @return the rejected accept count
+   */
+  long getAcceptRejectedCount();
+
+  /**
+   * Returns the number of peer calls that failed with a remote exception.
+   *
+   * @return the remote error count
+   */
+  long getRemoteErrorCount();
+
+  /**
+   * Returns the log index of the last change this server's learner applied.
+   *
+   * @return the applied index
+   */
+  long getAppliedIndex();
+
+  /**
+   * Returns the median latency of a full Paxos round.
+   *
+   * @return the median round latency in microseconds
+   */
+  long getPaxosRoundP50Micros();
+
+  /**
+   * Returns the 99th percentile latency of a full Paxos round.
+   *
+   * @return the 99th percentile round latency in microseconds
+   */
+  long getPaxosRoundP99Micros();
+
+  /**
+   * Returns the 99th percentile time spent waiting for a phase 1 quorum.
+   *
+   * @return the 99th percentile quorum wait in microseconds
+   */
+  long getQuorumWaitP99Micros();
+
+  /**
+   * Renders every metric in the plain-text format served by the scrape endpoint.
+   *
+   * @return the metrics as text
+   */
+  String scrape();
+}
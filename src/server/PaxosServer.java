@@ -47,4 +47,28 @@ public interface PaxosServer extends Server {
    */
   void updateConnectedServers(List<PaxosServer> servers) throws RemoteException;
 
+  /**
+   * Returns the port this server was started on, which identifies it among its peers.
+   *
+   * @return the port of the server
+   * @throws RemoteException if there is an error during remote method invocation
+   */
+  int getPort() throws RemoteException;
+
+  /**
+   * Returns the log index of the last change this server's learner applied.
+   *
+   * @return the applied index, or 0 if nothing has been applied yet
+   * @throws RemoteException if there is an error during remote method invocation
+   */
+  long getAppliedIndex() throws RemoteException;
+
+  /**
+   * Answers a heartbeat sent by a peer's failure detector.
+   *
+   * @return true if this server's acceptor is up, false if it is down and should be treated as failed
+   * @throws RemoteException if there is an error during remote method invocation
+   */
+  boolean heartbeat() throws RemoteException;
+
 }
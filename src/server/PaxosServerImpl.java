@@ -1,201 +1,1167 @@
 package server;
 
+import java.rmi.NoSuchObjectException;
 import java.rmi.RemoteException;
+import java.rmi.server.UnicastRemoteObject;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
 import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
 
 import shared.Logger;
 
 public class PaxosServerImpl implements PaxosServer, Server {
 
-  private static Logger logger = new Logger(System.out);
+  private static final int CHANGE_LOG_CAPACITY = 10000;
+  private static final int TRANSACTION_OUTCOME_CAPACITY = 10000;
+  private static final int LEARNED_PROPOSAL_CAPACITY = 10000;
+  private static final String BUSY_RESPONSE = "Server busy. Please try again.";
+  private static final long HEARTBEAT_INTERVAL_MS = Long.getLong("paxos.heartbeatIntervalMs", 100);
+  private static final long EXPORT_IDLE_TIMEOUT_MS = 60000;
   final int port;
+  private final Logger logger;
   private Map<String, String > mapStore;
+  private final Map<String, BinaryValue> blobStore;
+  private final Map<String, Long> versionStore;
+  private final Map<String, Boolean> transactionOutcomes;
   private List<PaxosServer> serverList;
+  // Guards the acceptor state below, so a prepare and an accept cannot interleave their checks and updates
+  private final Object acceptorLock = new Object();
   private long lastPrepared;
   private long lastAcceptedId;
   private Consumer<Map<String, String>> lastAcceptedCommand;
+  private final Set<LearnedProposal> learnedProposals;
+  private final String commandIdPrefix;
+  private final AtomicLong nextCommandId;
 
+  private final ChangeLog changeLog;
+  private final Map<Long, WatchSubscription> subscriptions;
+  private final AtomicLong nextSubscriptionId;
+  private final Map<Long, StoreExport> exports;
+  private final AtomicLong nextExportId;
+  private final Map<String, Namespace> namespaces;
+  private final Map<String, NamespaceView> namespaceViews;
+
+  private final PaxosMetrics metrics;
+  private final Map<PaxosServer, String> peerNames;
+  private final RequestExecutor requestExecutor;
+  private final FailureDetector failureDetector;
+  private final Map<String, Boolean> acceptorsUp;
+  private final QuorumConfig quorumConfig;
+  private final boolean witness;
+  private ScheduledExecutorService heartbeatTimer;
+
+  private final LongSupplier clock;
+  private BooleanSupplier acceptorAlive;
   private AcceptorRunnable acceptorRunnable;
   private Thread acceptorRunnableThread;
 
   public PaxosServerImpl(int port) {
+    this(port, true);
+  }
+
+  /**
+   * Constructs a PaxosServerImpl, optionally without the acceptor thread that periodically
+   * takes the acceptor down. Benchmarks and tests disable it to get a steady, failure-free cluster.
+   * Heartbeats are sent to every peer every {@code paxos.heartbeatIntervalMs} milliseconds (default 100),
+   * and quorums and witnesses are configured through {@link QuorumConfig#fromSystemProperties()}.
+   *
+   * @param port the port the server is started on
+   * @param simulateFailures true to start the failure-simulating acceptor thread, false otherwise
+   */
+  public PaxosServerImpl(int port, boolean simulateFailures) {
+    this(port, System::currentTimeMillis, HEARTBEAT_INTERVAL_MS, () -> true, QuorumConfig.fromSystemProperties(),
+            new RequestExecutor(), System::nanoTime);
+    acceptorRunnable = new AcceptorRunnable(this);
+    acceptorAlive = acceptorRunnable::isRunning;
+    acceptorRunnableThread = new Thread(acceptorRunnable);
+    if (simulateFailures) {
+      acceptorRunnableThread.start();
+    }
+    heartbeatTimer = Executors.newSingleThreadScheduledExecutor(task -> {
+      Thread thread = new Thread(task, "heartbeat-" + port);
+      thread.setDaemon(true);
+      return thread;
+    });
+    heartbeatTimer.scheduleAtFixedRate(this::sendHeartbeats, HEARTBEAT_INTERVAL_MS, HEARTBEAT_INTERVAL_MS,
+            TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Constructs a PaxosServerImpl whose proposal ids and acceptor availability are driven from
+   * outside, as the deterministic simulator does. No background thread is started: peer calls
+   * are made one after another on the calling thread, and heartbeats are sent by calling
+   * {@link #sendHeartbeats()}. Namespace rate limits run on the same clock.
+   *
+   * @param port the port, or replica number, identifying the server
+   * @param clock supplies the current time in microseconds, used to number proposals
+   * @param heartbeatInterval the expected time between heartbeats, in the units of the clock
+   * @param acceptorAlive tells whether the acceptor currently answers prepare and accept requests
+   * @param quorumConfig the quorum sizes and witnesses of the cluster
+   */
+  public PaxosServerImpl(int port, LongSupplier clock, long heartbeatInterval, BooleanSupplier acceptorAlive,
+                         QuorumConfig quorumConfig) {
+    this(port, clock, heartbeatInterval, acceptorAlive, quorumConfig, RequestExecutor.sequential(),
+            () -> TimeUnit.MICROSECONDS.toNanos(clock.getAsLong()));
+  }
+
+  /**
+   * Constructs a PaxosServerImpl that admits client requests and fans out peer calls through
+   * the given executor.
+   *
+   * @param port the port, or replica number, identifying the server
+   * @param clock supplies the current time, used to number proposals
+   * @param heartbeatInterval the expected time between heartbeats, in the units of the clock
+   * @param acceptorAlive tells whether the acceptor currently answers prepare and accept requests
+   * @param quorumConfig the quorum sizes and witnesses of the cluster
+   * @param requestExecutor admits client requests and runs peer calls
+   * @param nanoClock supplies the current time in nanoseconds, for namespace rate limits
+   */
+  public PaxosServerImpl(int port, LongSupplier clock, long heartbeatInterval, BooleanSupplier acceptorAlive,
+                         QuorumConfig quorumConfig, RequestExecutor requestExecutor, LongSupplier nanoClock) {
     mapStore = new ConcurrentHashMap<>();
     serverList = new ArrayList<>();
     lastAcceptedId = -1;
     lastPrepared = -1;
     mapStore = new ConcurrentHashMap<>();
+    blobStore = new ConcurrentHashMap<>();
+    versionStore = new ConcurrentHashMap<>();
+    transactionOutcomes = Collections.synchronizedMap(new LinkedHashMap<String, Boolean>() {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+        return size() > TRANSACTION_OUTCOME_CAPACITY;
+      }
+    });
+    learnedProposals = Collections.newSetFromMap(new LinkedHashMap<LearnedProposal, Boolean>() {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<LearnedProposal, Boolean> eldest) {
+        return size() > LEARNED_PROPOSAL_CAPACITY;
+      }
+    });
+    commandIdPrefix = port + ":" + clock.getAsLong() + ":";
+    nextCommandId = new AtomicLong(1);
+    changeLog = new ChangeLog(CHANGE_LOG_CAPACITY);
+    subscriptions = new ConcurrentHashMap<>();
+    nextSubscriptionId = new AtomicLong(1);
+    exports = new ConcurrentHashMap<>();
+    nextExportId = new AtomicLong(1);
+    namespaces = new HashMap<>();
+    for (String name : Namespace.declaredNames()) {
+      namespaces.put(name, Namespace.fromSystemProperties(name, nanoClock));
+    }
+    namespaceViews = new HashMap<>();
     this.port = port;
-    acceptorRunnable = new AcceptorRunnable(this);
-    acceptorRunnableThread = new Thread(acceptorRunnable);
-    acceptorRunnableThread.start();
+    logger = new Logger(System.out, true, "Port:" + port + ":");
+    peerNames = new ConcurrentHashMap<>();
+    metrics = new PaxosMetrics(port);
+    metrics.setReplicaAppliedIndexes(this::getReplicaAppliedIndexes);
+    this.clock = clock;
+    this.acceptorAlive = acceptorAlive;
+    this.requestExecutor = requestExecutor;
+    metrics.setInFlightRequests(requestExecutor::getInFlightRequests);
+    metrics.setNamespaces(() -> Collections.unmodifiableCollection(namespaces.values()));
+    this.failureDetector = new FailureDetector(clock, heartbeatInterval);
+    this.acceptorsUp = new ConcurrentHashMap<>();
+    metrics.setLeadership(this::getLeaderPort, () -> serverList.size() - reachablePeers().size());
+    this.quorumConfig = quorumConfig;
+    this.witness = quorumConfig.isWitness(port);
 
-    log("Server started at port:" + port);
+    log((witness ? "Witness" : "Server") + " started at port:" + port);
   }
 
   @Override
-  public String get(String key) throws RemoteException {
-    log("Received GET request: " + key);
+  public String get(String key) throws RemoteException, ExecutionException, InterruptedException {
+    if (!requestExecutor.tryAdmit()) {
+      return shed("GET");
+    }
+    try {
+      if (witness) {
+        return forwardToLeader(leader -> leader.get(key));
+      }
+      long start = System.nanoTime();
+      metrics.incrementRequests();
+      debug(() -> "Received GET request: " + key);
 
-    if (mapStore.containsKey(key)) {
       String response = mapStore.get(key);
+      namespaceOf(key).recordRead();
+      metrics.recordPhase(PaxosMetrics.Phase.GET, start);
+      if (response != null) {
+        logResponse(response);
+        return response;
+      }
+      BinaryValue binary = blobStore.get(key);
+      if (binary != null) {
+        return "Key " + key + " holds a binary value " + binary;
+      }
+
+
+      return "Key " + key + " not present in store";
+    } finally {
+      requestExecutor.release();
+    }
+  }
+
+  @Override
+  public String put(String key, String value) throws RemoteException, ExecutionException, InterruptedException {
+    if (!requestExecutor.tryAdmit()) {
+      return shed("PUT");
+    }
+    try {
+      String forwarded = forwardToLeader(leader -> leader.put(key, value));
+      if (forwarded != null) {
+        return forwarded;
+      }
+      long start = System.nanoTime();
+      metrics.incrementRequests();
+      Command command = Command.put(key, value);
+      String refused = admitWrites(Collections.singletonList(command));
+      if (refused != null) {
+        return refused;
+      }
+
+      boolean status = proceedPaxos(command);
+      String response = status ? "Value updated for " + key + " successfully"
+              : "Value update for " + key + " failed. Please try again.";
+      metrics.recordPhase(PaxosMetrics.Phase.PUT, start);
       logResponse(response);
+      debug(() -> "Current value:" + mapStore.get(key));
       return response;
+    } finally {
+      requestExecutor.release();
     }
+  }
 
+  @Override
+  public String delete(String key) throws RemoteException, ExecutionException, InterruptedException {
+    if (!requestExecutor.tryAdmit()) {
+      return shed("DELETE");
+    }
+    try {
+      String forwarded = forwardToLeader(leader -> leader.delete(key));
+      if (forwarded != null) {
+        return forwarded;
+      }
+      long start = System.nanoTime();
+      metrics.incrementRequests();
+      debug(() -> "Received DELETE request - Key: " + key);
+      if (mapStore.containsKey(key) || blobStore.containsKey(key)) {
+        Command command = Command.delete(key);
+        String refused = admitWrites(Collections.singletonList(command));
+        if (refused != null) {
+          return refused;
+        }
+        boolean status = proceedPaxos(command);
 
-    return "Key " + key + " not present in store";
+        String response = status ? key + " deleted successfully"
+                : key + " was unable to be deleted. Please try again.";
+        metrics.recordPhase(PaxosMetrics.Phase.DELETE, start);
+        logResponse(response);
+        return response;
+      } else {
+        String response = key + " not present in the store to be removed";
+        logResponse(response);
+        return response;
+      }
+    } finally {
+      requestExecutor.release();
+    }
   }
 
+
   @Override
-  public String put(String key, String value) throws RemoteException, ExecutionException, InterruptedException {
+  public String putBinary(String key, BinaryValue value)
+          throws RemoteException, ExecutionException, InterruptedException {
+    if (!requestExecutor.tryAdmit()) {
+      return shed("PUT");
+    }
+    try {
+      String forwarded = forwardToLeader(leader -> leader.putBinary(key, value));
+      if (forwarded != null) {
+        return forwarded;
+      }
+      long start = System.nanoTime();
+      metrics.incrementRequests();
+      debug(() -> "Received binary PUT request - Key: " + key + " Value: " + value);
+      Command command = Command.putBinary(key, value);
+      String refused = admitWrites(Collections.singletonList(command));
+      if (refused != null) {
+        return refused;
+      }
 
-    boolean status = proceedPaxos(mapStore -> mapStore.put(key, value));
-    String response = status ? "Value updated for " + key + " successfully"
-            : "Value update for " + key + " failed. Please try again.";
-    logResponse(response);
-    log("Current value:" + mapStore.get(key));
-    return response;
+      boolean status = proceedPaxos(command);
+      String response = status ? "Value updated for " + key + " successfully"
+              : "Value update for " + key + " failed. Please try again.";
+      metrics.recordPhase(PaxosMetrics.Phase.PUT, start);
+      logResponse(response);
+      return response;
+    } finally {
+      requestExecutor.release();
+    }
+  }
 
+  @Override
+  public BinaryValue getBinary(String key) throws RemoteException {
+    if (!requestExecutor.tryAdmit()) {
+      throw new RemoteException(shed("GET_BINARY"));
+    }
+    try {
+      if (witness) {
+        return storingLeader().getBinary(key);
+      }
+      long start = System.nanoTime();
+      metrics.incrementRequests();
+      debug(() -> "Received binary GET request: " + key);
+      BinaryValue value = blobStore.get(key);
+      namespaceOf(key).recordRead();
+      metrics.recordPhase(PaxosMetrics.Phase.GET, start);
+      return value;
+    } finally {
+      requestExecutor.release();
+    }
   }
 
   @Override
-  public String delete(String key) throws RemoteException, ExecutionException, InterruptedException {
-    log("Received DELETE request - Key: " + key);
-    if (mapStore.containsKey(key)) {
-      boolean status = proceedPaxos(mapStore -> mapStore.remove(key));
+  public String putAll(Map<String, String> entries)
+          throws RemoteException, ExecutionException, InterruptedException {
+    if (!requestExecutor.tryAdmit()) {
+      return shed("PUT_ALL");
+    }
+    try {
+      String forwarded = forwardToLeader(leader -> leader.putAll(entries));
+      if (forwarded != null) {
+        return forwarded;
+      }
+      long start = System.nanoTime();
+      metrics.incrementRequests();
+      debug(() -> "Received PUT_ALL request with " + entries.size() + " entries");
+      BatchCommand batch = BatchCommand.putAll(entries);
+      String refused = admitWrites(batch.getWrites());
+      if (refused != null) {
+        return refused;
+      }
 
-      String response = status ? key + " deleted successfully"
-              : key + " was unable to be deleted. Please try again.";
+      boolean status = proceedPaxos(batch);
+      String response = status ? entries.size() + " keys updated successfully"
+              : "Update of " + entries.size() + " keys failed. Please try again.";
+      metrics.recordPhase(PaxosMetrics.Phase.PUT_ALL, start);
       logResponse(response);
       return response;
-    } else {
-      String response = key + " not present in the store to be removed";
+    } finally {
+      requestExecutor.release();
+    }
+  }
+
+  @Override
+  public long openExport() {
+    return openExport(Namespace.DEFAULT);
+  }
+
+  /**
+   * Opens an export of one namespace, which reads only that namespace's keys. An export of the
+   * {@value Namespace#DEFAULT} namespace reads the whole store.
+   *
+   * @param namespace the name of the namespace to export
+   * @return the identifier of the export
+   */
+  public synchronized long openExport(String namespace) {
+    if (witness) {
+      throw new IllegalStateException("Witness " + port + " stores no values to export");
+    }
+    long now = System.currentTimeMillis();
+    exports.values().removeIf(export -> export.isIdleSince(now - EXPORT_IDLE_TIMEOUT_MS));
+    long id = nextExportId.getAndIncrement();
+    // Registered under the learner's lock, so every write applied after this is reported to it
+    exports.put(id, namespace.equals(Namespace.DEFAULT) ? new StoreExport(id, mapStore, blobStore, now)
+            : new StoreExport(id, namespaces.get(namespace), mapStore, blobStore, now));
+    log("Export " + id + " of namespace " + namespace + " opened at index " + getAppliedIndex());
+    return id;
+  }
+
+  /**
+   * Checks that an export is open and was opened in the given namespace.
+   *
+   * @param exportId the identifier of the export
+   * @param namespace the name of the namespace
+   * @throws IllegalArgumentException if the export is not open in the namespace
+   */
+  public void checkExportNamespace(long exportId, String namespace) {
+    StoreExport export = exports.get(exportId);
+    if (export == null || !export.getNamespace().equals(namespace)) {
+      throw new IllegalArgumentException("Export " + exportId + " is not open in namespace " + namespace);
+    }
+  }
+
+  @Override
+  public List<Command> exportChunk(long exportId, int maxEntries) {
+    return openedExport(exportId).nextChunk(maxEntries, System.currentTimeMillis());
+  }
+
+  @Override
+  public synchronized List<Command> finishExport(long exportId) {
+    List<Command> corrections = openedExport(exportId).corrections(mapStore, blobStore);
+    exports.remove(exportId);
+    log("Export " + exportId + " finished at index " + getAppliedIndex() + " with " + corrections.size()
+            + " corrections");
+    return corrections;
+  }
+
+  private StoreExport openedExport(long exportId) {
+    StoreExport export = exports.get(exportId);
+    if (export == null) {
+      throw new IllegalArgumentException("Export " + exportId + " is not open");
+    }
+    return export;
+  }
+
+  @Override
+  public VersionedValue getVersioned(String key) throws RemoteException {
+    if (!requestExecutor.tryAdmit()) {
+      throw new RemoteException(shed("GET_VERSIONED"));
+    }
+    try {
+      if (witness) {
+        return storingLeader().getVersioned(key);
+      }
+      return readVersioned(key);
+    } finally {
+      requestExecutor.release();
+    }
+  }
+
+  private synchronized VersionedValue readVersioned(String key) {
+    metrics.incrementRequests();
+    debug(() -> "Received versioned GET request: " + key);
+    namespaceOf(key).recordRead();
+    return new VersionedValue(mapStore.get(key), versionStore.getOrDefault(key, 0L));
+  }
+
+  @Override
+  public String commit(TransactionCommand transaction)
+          throws RemoteException, ExecutionException, InterruptedException {
+    if (!requestExecutor.tryAdmit()) {
+      return shed("COMMIT");
+    }
+    try {
+      String forwarded = forwardToLeader(leader -> leader.commit(transaction));
+      if (forwarded != null) {
+        return forwarded;
+      }
+      long start = System.nanoTime();
+      metrics.incrementRequests();
+      debug(() -> "Received COMMIT request - Transaction: " + transaction.getId() + " with "
+              + transaction.getWrites().size() + " writes");
+      String refused = admitWrites(transaction.getWrites());
+      if (refused != null) {
+        return refused;
+      }
+      proceedPaxos(transaction);
+      // Learners may apply the transaction even when the round is reported as failed
+      Boolean committed = transactionOutcomes.get(transaction.getId());
+      metrics.recordPhase(PaxosMetrics.Phase.COMMIT, start);
+      String response;
+      if (committed == null) {
+        response = "Transaction " + transaction.getId() + " was unable to be committed. Please try again.";
+      } else if (committed) {
+        response = "Transaction " + transaction.getId() + " committed successfully";
+      } else {
+        response = "Transaction " + transaction.getId() + " aborted due to a conflicting write";
+      }
       logResponse(response);
       return response;
+    } finally {
+      requestExecutor.release();
     }
   }
 
+  @Override
+  public long watch(String keyOrPrefix, long fromIndex, WatchListener listener) {
+    return watch(Namespace.DEFAULT, keyOrPrefix, fromIndex, listener);
+  }
+
+  /**
+   * Registers a watch opened in the given namespace. It is forgotten as soon as it ends, whether
+   * it was cancelled or ended on the server.
+   *
+   * @param namespace the name of the namespace the watch is opened in
+   * @param keyOrPrefix the stored key or key prefix to watch
+   * @param fromIndex the first change log index to deliver, or a negative value for new changes only
+   * @param listener the listener to deliver changes to
+   * @return the identifier of the watch
+   */
+  public long watch(String namespace, String keyOrPrefix, long fromIndex, WatchListener listener) {
+    if (witness) {
+      throw new IllegalStateException("Witness " + port + " stores no changes to watch");
+    }
+    long start = fromIndex < 0 ? changeLog.getNextIndex() : fromIndex;
+    if (start < changeLog.getOldestIndex()) {
+      throw new IllegalArgumentException("Index " + start + " is no longer retained, oldest is "
+              + changeLog.getOldestIndex());
+    }
+    long id = nextSubscriptionId.getAndIncrement();
+    WatchSubscription subscription = new WatchSubscription(id, namespace, keyOrPrefix, start, listener, changeLog);
+    subscriptions.put(id, subscription);
+    Thread subscriptionThread = new Thread(() -> {
+      subscription.run();
+      subscriptions.remove(id);
+    });
+    subscriptionThread.setDaemon(true);
+    subscriptionThread.start();
+    log("Watch " + id + " registered for '" + keyOrPrefix + "' from index " + start);
+    return id;
+  }
+
+  /**
+   * Checks that a watch is still running and was opened in the given namespace.
+   *
+   * @param subscriptionId the identifier of the watch
+   * @param namespace the name of the namespace
+   * @throws IllegalArgumentException if the watch is not open in the namespace
+   */
+  public void checkWatchNamespace(long subscriptionId, String namespace) {
+    WatchSubscription subscription = subscriptions.get(subscriptionId);
+    if (subscription == null || !subscription.getNamespace().equals(namespace)) {
+      throw new IllegalArgumentException("Watch " + subscriptionId + " is not open in namespace " + namespace);
+    }
+  }
+
+  @Override
+  public void unwatch(long subscriptionId) {
+    WatchSubscription subscription = subscriptions.remove(subscriptionId);
+    if (subscription != null) {
+      subscription.cancel();
+      log("Watch " + subscriptionId + " cancelled");
+    }
+  }
+
+  @Override
+  public Server namespace(String name) throws RemoteException {
+    Namespace.validateName(name);
+    if (!namespaces.containsKey(name)) {
+      throw new IllegalArgumentException("Unknown namespace " + name);
+    }
+    if (name.equals(Namespace.DEFAULT)) {
+      return this;
+    }
+    synchronized (namespaceViews) {
+      NamespaceView view = namespaceViews.get(name);
+      if (view == null) {
+        view = new NamespaceView(name, this);
+        UnicastRemoteObject.exportObject(view, 0);
+        namespaceViews.put(name, view);
+      }
+      return view;
+    }
+  }
 
   @Override
   public PreparePromise prepare(long prepareId) {
-    if (!acceptorRunnable.isRunning()) {
+    if (!acceptorAlive.getAsBoolean()) {
       log("Acceptor thread not running, skipping prepare request.");
+      metrics.incrementPrepareRejected();
       return null;
     }
 
-    if (lastPrepared > prepareId) {
-      return null;
+    long start = System.nanoTime();
+    PreparePromise promise;
+    synchronized (acceptorLock) {
+      if (lastPrepared > prepareId) {
+        metrics.incrementPrepareRejected();
+        return null;
+      }
+      lastPrepared = prepareId;
+      if (lastAcceptedId == -1) {
+        promise = new PreparePromise(prepareId);
+      } else
+        promise = new PreparePromise(prepareId, lastAcceptedId, lastAcceptedCommand);
     }
-    lastPrepared = prepareId;
-    if (lastAcceptedId == -1) {
-      return new PreparePromise(prepareId);
-    } else
-      return new PreparePromise(prepareId, lastAcceptedId, lastAcceptedCommand);
+    metrics.recordPhase(PaxosMetrics.Phase.PREPARE, start);
+    return promise;
   }
 
   @Override
   public AcceptMessage accept(long id, Consumer<Map<String, String>> mapConsumer) {
-    if (!acceptorRunnable.isRunning()) {
+    if (!acceptorAlive.getAsBoolean()) {
       log("Acceptor thread not running, skipping accept request.");
+      metrics.incrementAcceptRejected();
       return null;
     }
 
-    if (id < lastPrepared || id < lastAcceptedId)
-      return null;
-    lastAcceptedId = id;
-    lastAcceptedCommand = mapConsumer;
-    AcceptMessage acceptMessage = new AcceptMessage(id, mapConsumer);
-    for (PaxosServer server : serverList) {
-      try {
-        server.updateLearner(acceptMessage);
-      } catch (RemoteException e) {
-        log("Remote exception encountered");
+    long start = System.nanoTime();
+    synchronized (acceptorLock) {
+      if (id < lastPrepared || id < lastAcceptedId) {
+        metrics.incrementAcceptRejected();
+        return null;
       }
+      lastAcceptedId = id;
+      lastAcceptedCommand = mapConsumer;
     }
+    // Learners are told outside the lock, so a slow peer does not hold up other proposals
+    AcceptMessage acceptMessage = new AcceptMessage(id, mapConsumer);
+    try {
+      requestExecutor.callAll(reachablePeers(), server -> {
+        try {
+          server.updateLearner(acceptMessage);
+        } catch (RemoteException e) {
+          metrics.incrementRemoteErrors();
+          log("Remote exception encountered");
+        }
+        return null;
+      });
+    } catch (ExecutionException e) {
+      log("Learner update failed: " + e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    metrics.recordPhase(PaxosMetrics.Phase.ACCEPT, start);
 
     return acceptMessage;
   }
 
   @Override
-  public void updateLearner(AcceptMessage message) {
-    lastAcceptedId = -1;
-    lastPrepared = -1;
-    message.getConsumer().accept(mapStore); //learner updates map store
+  public synchronized void updateLearner(AcceptMessage message) {
+    synchronized (acceptorLock) {
+      lastAcceptedId = -1;
+      lastPrepared = -1;
+    }
+    if (!(message.getConsumer() instanceof ProposedCommand)) {
+      throw new IllegalArgumentException("Proposal " + message.getId() + " carries no command id");
+    }
+    ProposedCommand proposed = (ProposedCommand) message.getConsumer();
+    if (!learnedProposals.add(new LearnedProposal(message.getId(), proposed.getId()))) {
+      return; // already learned from another acceptor
+    }
+    Consumer<Map<String, String>> command = proposed.getCommand();
+    long start = System.nanoTime();
+    if (witness) {
+      // Witnesses only vote; the chosen value is kept by the other replicas
+      metrics.recordPhase(PaxosMetrics.Phase.LEARN, start);
+      return;
+    }
+    long proposalId = message.getId();
+    if (command instanceof TransactionCommand) {
+      applyTransaction((TransactionCommand) command, proposalId);
+    } else if (command instanceof BatchCommand) {
+      for (Command write : ((BatchCommand) command).getWrites()) {
+        applyWrite(write, proposalId);
+      }
+    } else if (command instanceof Command) {
+      applyWrite((Command) command, proposalId); //learner updates map store
+    } else {
+      command.accept(mapStore);
+    }
+    metrics.setAppliedIndex(getAppliedIndex());
+    metrics.recordPhase(PaxosMetrics.Phase.LEARN, start);
 //    log("Learner updated value successfully.");
   }
 
   @Override
   public void updateConnectedServers(List<PaxosServer> servers) {
+    for (PaxosServer server : servers) {
+      try {
+        peerNames.putIfAbsent(server, String.valueOf(server.getPort()));
+      } catch (RemoteException e) {
+        log("Remote exception encountered while naming peer");
+      }
+    }
     serverList = servers;
   }
 
+  @Override
+  public int getPort() {
+    return port;
+  }
+
+  @Override
+  public boolean heartbeat() {
+    return acceptorAlive.getAsBoolean();
+  }
+
+  /**
+   * Sends a heartbeat to every peer and feeds the answers to the failure detector. A peer that does
+   * not answer is left to the detector's growing suspicion; one that answers with its acceptor down
+   * stays reachable for learning but is left out of prepare and accept requests.
+   */
+  public void sendHeartbeats() {
+    try {
+      requestExecutor.callAll(serverList, server -> {
+        String name = peerName(server);
+        try {
+          boolean acceptorUp = server.heartbeat();
+          failureDetector.heartbeat(name);
+          acceptorsUp.put(name, acceptorUp);
+        } catch (RemoteException e) {
+          debug(() -> "No heartbeat from " + name);
+        }
+        return null;
+      });
+    } catch (ExecutionException e) {
+      log("Heartbeat failed: " + e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Returns the port of the replica this server considers the leader: the lowest port among the
+   * peers its failure detector does not suspect, this server included.
+   *
+   * @return the leader's port, or -1 if this server is a witness that can reach no leader
+   */
+  public int getLeaderPort() {
+    PaxosServer leader = leaderToForwardTo();
+    if (leader == null) {
+      return witness ? -1 : port;
+    }
+    return peerPort(leader);
+  }
+
+  /**
+   * Stops the server's background threads: the failure-simulating acceptor, the heartbeat timer
+   * and the threads making peer calls.
+   */
+  public void shutdown() {
+    if (acceptorRunnableThread != null) {
+      acceptorRunnableThread.interrupt();
+    }
+    if (heartbeatTimer != null) {
+      heartbeatTimer.shutdownNow();
+    }
+    requestExecutor.shutdown();
+    synchronized (namespaceViews) {
+      for (NamespaceView view : namespaceViews.values()) {
+        try {
+          UnicastRemoteObject.unexportObject(view, true);
+        } catch (NoSuchObjectException e) {
+          log("Namespace view already unexported");
+        }
+      }
+      namespaceViews.clear();
+    }
+  }
+
+  @Override
+  public long getAppliedIndex() {
+    return changeLog.getNextIndex() - 1;
+  }
+
+  /**
+   * Returns the metrics collected by this server.
+   *
+   * @return the server's metrics
+   */
+  public PaxosMetrics getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * Queries the applied index of every connected replica, including this one.
+   * Replicas that cannot be reached are left out, and so are witnesses, which apply nothing and
+   * would otherwise always appear to lag.
+   *
+   * @return the applied index of each reachable replica, keyed by peer name
+   */
+  private Map<String, Long> getReplicaAppliedIndexes() {
+    Map<String, Long> indexes = new HashMap<>();
+    for (PaxosServer server : serverList) {
+      if (quorumConfig.isWitness(peerPort(server))) {
+        continue;
+      }
+      try {
+        indexes.put(peerName(server), server.getAppliedIndex());
+      } catch (RemoteException e) {
+        metrics.incrementRemoteErrors();
+      }
+    }
+    return indexes;
+  }
+
+  private String peerName(PaxosServer server) {
+    return peerNames.getOrDefault(server, "unknown");
+  }
+
+  private int peerPort(PaxosServer server) {
+    String name = peerNames.get(server);
+    return name == null ? -1 : Integer.parseInt(name);
+  }
+
+  /**
+   * Returns the peers the failure detector does not suspect, in connection order.
+   *
+   * @return the reachable peers
+   */
+  private List<PaxosServer> reachablePeers() {
+    List<PaxosServer> reachable = new ArrayList<>(serverList.size());
+    for (PaxosServer server : serverList) {
+      if (!failureDetector.isSuspected(peerName(server))) {
+        reachable.add(server);
+      }
+    }
+    return reachable;
+  }
+
+  /**
+   * Returns the reachable peers whose acceptor answered the last heartbeat as up. Prepare and
+   * accept requests go only to these, so a round does not wait on acceptors known to be down.
+   *
+   * @return the peers able to vote
+   */
+  private List<PaxosServer> votingPeers() {
+    List<PaxosServer> voting = new ArrayList<>(serverList.size());
+    for (PaxosServer server : reachablePeers()) {
+      if (acceptorsUp.getOrDefault(peerName(server), true)) {
+        voting.add(server);
+      }
+    }
+    return voting;
+  }
+
+  /**
+   * Returns the leader a write should be forwarded to, or null if this server is the leader.
+   * Witnesses are never leaders. Each replica derives the leader from its own failure detector,
+   * so replicas may briefly disagree, but a write only ever moves from a witness to a storing
+   * replica or from a storing replica to a lower port, and so cannot loop.
+   */
+  private PaxosServer leaderToForwardTo() {
+    PaxosServer leader = null;
+    int leaderPort = witness ? Integer.MAX_VALUE : port;
+    for (PaxosServer server : reachablePeers()) {
+      int serverPort = peerPort(server);
+      if (serverPort >= 0 && serverPort < leaderPort && !quorumConfig.isWitness(serverPort)) {
+        leader = server;
+        leaderPort = serverPort;
+      }
+    }
+    return leader;
+  }
+
+  /**
+   * Returns the leader a witness forwards reads to.
+   *
+   * @return the leader
+   * @throws IllegalStateException if no replica storing values is reachable
+   */
+  private PaxosServer storingLeader() {
+    PaxosServer leader = leaderToForwardTo();
+    if (leader == null) {
+      throw new IllegalStateException("Witness " + port + " cannot reach a replica storing values");
+    }
+    return leader;
+  }
+
+  /**
+   * Forwards a write to the leader so that a single replica proposes, instead of several dueling
+   * over the same round. If the leader cannot be reached the write is proposed locally, except
+   * on a witness, which has no values to propose against and asks the client to retry.
+   *
+   * @param write the write to make on the leader
+   * @return the leader's response, or null if this server should propose the write itself
+   */
+  private String forwardToLeader(RequestExecutor.PeerCall<PaxosServer, String> write)
+          throws ExecutionException, InterruptedException {
+    PaxosServer leader = leaderToForwardTo();
+    if (leader != null) {
+      try {
+        String response = write.call(leader);
+        metrics.incrementForwardedRequests();
+        return response;
+      } catch (RemoteException e) {
+        metrics.incrementRemoteErrors();
+        log("Leader " + peerName(leader) + " unreachable" + (witness ? "" : ", proposing locally"));
+      } catch (ExecutionException | InterruptedException e) {
+        throw e;
+      } catch (Exception e) {
+        throw new ExecutionException(e);
+      }
+    }
+    return witness ? "Witness " + port + " cannot reach a replica storing values. Please try again." : null;
+  }
+
+  /**
+   * Applies the writes of a transaction if none of the keys it read has changed, and records the
+   * outcome so that the proposer can report it to the client. A transaction can be learned again
+   * under a later proposal that completed it; by then its own writes would fail the check, so
+   * only the first outcome counts and the transaction is not applied twice.
+   *
+   * @param transaction the transaction to apply
+   * @param proposalId the id of the proposal that chose the transaction
+   */
+  private void applyTransaction(TransactionCommand transaction, long proposalId) {
+    if (transactionOutcomes.containsKey(transaction.getId())) {
+      return;
+    }
+    boolean valid = transaction.isValid(versionStore);
+    if (valid) {
+      for (Command write : transaction.getWrites()) {
+        applyWrite(write, proposalId);
+      }
+    }
+    transactionOutcomes.putIfAbsent(transaction.getId(), valid);
+  }
+
+  /**
+   * Applies one write to the store and records it, keeping the usage of the key's namespace
+   * up to date.
+   *
+   * @param write the write to apply
+   * @param proposalId the id of the proposal that chose the write
+   */
+  private void applyWrite(Command write, long proposalId) {
+    String key = write.getKey();
+    boolean existed = mapStore.containsKey(key) || blobStore.containsKey(key);
+    long oldSize = entrySize(key);
+    write.accept(mapStore);
+    recordChange(write, proposalId);
+    boolean exists = write.getType() != Command.Type.DELETE;
+    Namespace namespace = namespaceOf(key);
+    namespace.recordUsage((exists ? 1 : 0) - (existed ? 1 : 0), entrySize(key) - oldSize);
+    namespace.recordKey(key, exists);
+  }
+
+  /**
+   * Returns the size a key and its value take up, as counted against namespace quotas.
+   *
+   * @param key the key
+   * @return the size in bytes, 0 if the key is absent
+   */
+  private long entrySize(String key) {
+    String value = mapStore.get(key);
+    if (value != null) {
+      return key.length() + value.length();
+    }
+    BinaryValue binary = blobStore.get(key);
+    return binary != null ? key.length() + binary.getStoredLength() : 0;
+  }
+
+  /**
+   * Returns the namespace a stored key belongs to: the declared namespace its prefix names, or
+   * the default namespace.
+   *
+   * @param key the stored key
+   * @return the key's namespace
+   */
+  private Namespace namespaceOf(String key) {
+    Namespace namespace = namespaces.get(Namespace.nameOf(key));
+    return namespace != null ? namespace : namespaces.get(Namespace.DEFAULT);
+  }
+
+  /**
+   * Checks the writes about to be proposed against the quotas and rate limits of the namespaces
+   * they touch, before they cost a Paxos round. Usage is estimated from this server's store.
+   *
+   * @param writes the writes to propose
+   * @return null if the writes may be proposed, otherwise the reason they are refused
+   */
+  private String admitWrites(List<Command> writes) {
+    Map<Namespace, long[]> changes = new LinkedHashMap<>();
+    for (Command write : writes) {
+      String key = write.getKey();
+      long[] change = changes.computeIfAbsent(namespaceOf(key), namespace -> new long[3]);
+      boolean exists = mapStore.containsKey(key) || blobStore.containsKey(key);
+      long newSize;
+      if (write.getType() == Command.Type.PUT) {
+        newSize = key.length() + write.getValue().length();
+      } else if (write.getType() == Command.Type.PUT_BINARY) {
+        newSize = key.length() + write.getBinaryValue().getStoredLength();
+      } else {
+        newSize = 0;
+      }
+      change[0] += (write.getType() != Command.Type.DELETE ? 1 : 0) - (exists ? 1 : 0);
+      change[1] += newSize - entrySize(key);
+      change[2]++;
+    }
+    for (Map.Entry<Namespace, long[]> change : changes.entrySet()) {
+      long[] delta = change.getValue();
+      String refused = change.getKey().admitWrites(delta[0], delta[1], (int) delta[2]);
+      if (refused != null) {
+        debug(() -> "Refused writes: " + refused);
+        return refused;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Appends an applied command to the change log, sets the version of its key, tells open
+   * exports about it and keeps the blob store in step: a binary put stores its value there,
+   * any other command drops the key's binary value.
+   * The new version is the id of the proposal that chose the command, or one past the key's
+   * current version if that is not already higher: proposal ids come from a millisecond clock,
+   * so writes in the same millisecond share one. Deleted keys keep their version so that a key
+   * deleted and written again never goes back to a version a transaction may have read.
+   *
+   * @param command the applied command
+   * @param proposalId the id of the proposal that chose the command
+   */
+  private void recordChange(Command command, long proposalId) {
+    changeLog.append(command);
+    for (StoreExport export : exports.values()) {
+      export.keyChanged(command.getKey());
+    }
+    if (command.getType() == Command.Type.PUT_BINARY) {
+      blobStore.put(command.getKey(), command.getBinaryValue());
+    } else {
+      blobStore.remove(command.getKey());
+    }
+    versionStore.merge(command.getKey(), proposalId, (current, id) -> Math.max(id, current + 1));
+  }
+
   private void log(String message) {
-    logger.log("Port:" + port + ":" + message);
+    logger.log(message);
+  }
+
+  private void debug(Supplier<String> message) {
+    logger.debug(message);
+  }
+
+  /**
+   * Turns away a client request that could not be admitted.
+   *
+   * @param operation the name of the rejected operation
+   * @return the response telling the client the server is busy
+   */
+  private String shed(String operation) {
+    metrics.incrementRejectedRequests();
+    debug(() -> "Server busy, rejected " + operation + " request");
+    return BUSY_RESPONSE;
   }
 
   private void logResponse(String response) {
-    logger.log("Sending Response: " + response);
+    if (Logger.isEnabled(Logger.Level.DEBUG)) {
+      logger.log(Logger.Level.DEBUG, "Sending Response: " + response);
+    }
   }
 
-  private boolean proceedPaxos(Consumer<Map<String, String>> commandIssued) {
+  private boolean proceedPaxos(Consumer<Map<String, String>> commandIssued)
+          throws ExecutionException, InterruptedException {
+    long start = System.nanoTime();
     long id;
     int prepareAccepted = 0;
-    id = System.currentTimeMillis();
-    Consumer<Map<String, String>> command = commandIssued;
+    id = clock.getAsLong();
+    Consumer<Map<String, String>> command = new ProposedCommand(commandIdPrefix + nextCommandId.getAndIncrement(),
+            commandIssued);
     long currGreatestAccepted = -1;
-    for (PaxosServer server : serverList) {
+    int phase1Quorum = quorumConfig.phase1Size(serverList.size());
+    List<PaxosServer> voters = votingPeers();
+    if (voters.size() < phase1Quorum) {
+      metrics.incrementProposals(false);
+      log("Only " + voters.size() + " acceptors reachable, phase 1 quorum not possible. Aborting...");
+      return false;
+    }
+    AtomicInteger promisesReceived = new AtomicInteger();
+    List<PreparePromise> promises = requestExecutor.callQuorum(voters, server -> {
+      long callStart = System.nanoTime();
       try {
         PreparePromise promise = server.prepare(id);
-        if (promise != null) {
-          prepareAccepted++;
-          if (promise.getAcceptedId() > currGreatestAccepted) {
-            command = promise.getAcceptedCommand();
-          }
+        metrics.recordPeerCall(peerName(server), "prepare", callStart);
+        if (promise != null && promisesReceived.incrementAndGet() == phase1Quorum) {
+          metrics.recordPhase(PaxosMetrics.Phase.QUORUM_WAIT, start);
         }
+        return promise;
       } catch (RemoteException e) {
+        metrics.incrementRemoteErrors();
         log("Remote Exception occurred.");
+        return null;
+      }
+    }, phase1Quorum);
+    for (PreparePromise promise : promises) {
+      prepareAccepted++;
+      if (promise.getAcceptedId() > currGreatestAccepted) {
+        currGreatestAccepted = promise.getAcceptedId();
+        command = promise.getAcceptedCommand();
       }
-
     }
+    metrics.recordPhase(PaxosMetrics.Phase.PHASE_ONE, start);
 
-    if (prepareAccepted <= Math.floor(serverList.size() / 2)) {
-      log("Majority not received. Aborting...");
-      return false; //majority not acquired
+    if (prepareAccepted < phase1Quorum) {
+      metrics.incrementProposals(false);
+      log("Phase 1 quorum not received. Aborting...");
+      return false; //quorum not acquired
     }
-    log("Majority of " + prepareAccepted + " received. Accepting phase initiating...");
-    runPhaseTwo(id, command);
+    int promised = prepareAccepted;
+    debug(() -> "Quorum of " + promised + " received. Accepting phase initiating...");
+    boolean chosen = runPhaseTwo(id, command);
+    metrics.recordPhase(PaxosMetrics.Phase.PROPOSE, start);
 
-    return true;
+    if (currGreatestAccepted != -1) {
+      // Phase 2 completed a value accepted by an earlier proposal; this one still has to be retried
+      log("Proposal " + id + " completed an earlier accepted value instead of its own");
+      metrics.incrementProposals(false);
+      return false;
+    }
+    metrics.incrementProposals(chosen);
+    return chosen;
 
   }
 
-  private boolean runPhaseTwo(long id, Consumer<Map<String, String>> command) {
-    int acceptedCount = 0;
+  private boolean runPhaseTwo(long id, Consumer<Map<String, String>> command)
+          throws ExecutionException, InterruptedException {
+    long start = System.nanoTime();
+    int phase2Quorum = quorumConfig.phase2Size(serverList.size());
 
-    for (PaxosServer server : serverList) {
+    List<AcceptMessage> accepted = requestExecutor.callQuorum(votingPeers(), server -> {
+      long callStart = System.nanoTime();
       try {
-        if (server.accept(id, command) != null) {
-          acceptedCount++;
-        }
+        AcceptMessage message = server.accept(id, command);
+        metrics.recordPeerCall(peerName(server), "accept", callStart);
+        return message;
       } catch (RemoteException e){
+        metrics.incrementRemoteErrors();
         log("Remote exception encountered");
+        return null;
+      }
+    }, phase2Quorum);
+    metrics.recordPhase(PaxosMetrics.Phase.PHASE_TWO, start);
+
+    if (accepted.size() >= phase2Quorum) {
+      debug(() -> "Consensus reached");
+      return true;
+    }
+    log("Phase 2 quorum did not accept");
+    return false;
+  }
+
+  /**
+   * A proposal a learner has applied. Every acceptor of a proposal passes it on to every learner,
+   * and copies from different acceptors can arrive interleaved with other proposals, so learners
+   * remember the recent ones to apply each only once. Proposal ids come from the proposers' clocks
+   * and two proposers can pick the same one, so the id of the command is part of the identity.
+   */
+  private static final class LearnedProposal {
+    private final long id;
+    private final String commandId;
+
+    LearnedProposal(long id, String commandId) {
+      this.id = id;
+      this.commandId = commandId;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof LearnedProposal)) {
+        return false;
       }
+      LearnedProposal proposal = (LearnedProposal) other;
+      return id == proposal.id && commandId.equals(proposal.commandId);
     }
 
-    if (acceptedCount > Math.floor(serverList.size() / 2)) {
-      log("Consensus reached");
-    } else {
-      log("Majority did not accept");
+    @Override
+    public int hashCode() {
+      return Long.hashCode(id) * 31 + commandId.hashCode();
     }
-    return true;
   }
 
 }
@@ -0,0 +1,68 @@
+package server;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * A command as proposed through Paxos, tagged with an id its proposer gives it. The id travels
+ * with the command through promises and accepts, including when another proposer completes it,
+ * so learners can tell copies of the same command apart from different commands by value, even
+ * once each acceptor's copy has been deserialized into a new object.
+ */
+public class ProposedCommand implements Consumer<Map<String, String>>, Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private final String id;
+  private final Consumer<Map<String, String>> command;
+
+  /**
+   * Constructs a ProposedCommand.
+   *
+   * @param id the id of the command, unique across proposers
+   * @param command the command to apply once chosen
+   */
+  public ProposedCommand(String id, Consumer<Map<String, String>> command) {
+    this.id = id;
+    this.command = command;
+  }
+
+  /**
+   * Applies the command to the given map store.
+   *
+   * @param mapStore the store to update
+   */
+  @Override
+  public void accept(Map<String, String> mapStore) {
+    command.accept(mapStore);
+  }
+
+  /**
+   * Returns the id the proposer gave the command.
+   *
+   * @return the command id
+   */
+  public String getId() {
+    return id;
+  }
+
+  /**
+   * Returns the command to apply once chosen.
+   *
+   * @return the command
+   */
+  public Consumer<Map<String, String>> getCommand() {
+    return command;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    return other instanceof ProposedCommand && id.equals(((ProposedCommand) other).id);
+  }
+
+  @Override
+  public int hashCode() {
+    return id.hashCode();
+  }
+}
@@ -0,0 +1,112 @@
+package server;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The quorum sizes of the two Paxos phases and the replicas that act as witnesses.
+ * <p>
+ * Following Flexible Paxos, the phases need not both use a majority: any phase 1 quorum of size
+ * Q1 and phase 2 quorum of size Q2 are safe as long as every pair intersects, i.e. Q1 + Q2 > N.
+ * A small Q2 makes the accept phase of every write wait for fewer acceptors, at the price of a
+ * larger Q1 that must be gathered to prepare.
+ * <p>
+ * Witnesses take part in both phases but store no values: their learners only track which
+ * proposals were chosen, and they forward client requests to a replica that does store values.
+ */
+public class QuorumConfig {
+
+  private final int phase1Quorum;
+  private final int phase2Quorum;
+  private final Set<Integer> witnessPorts;
+
+  /**
+   * Constructs a QuorumConfig.
+   *
+   * @param phase1Quorum the number of promises a proposer needs, or 0 for a majority
+   * @param phase2Quorum the number of accepts a proposer waits for, or 0 for a majority
+   * @param witnessPorts the ports of the replicas that store no values
+   */
+  public QuorumConfig(int phase1Quorum, int phase2Quorum, Set<Integer> witnessPorts) {
+    if (phase1Quorum < 0 || phase2Quorum < 0) {
+      throw new IllegalArgumentException("Quorum sizes cannot be negative");
+    }
+    this.phase1Quorum = phase1Quorum;
+    this.phase2Quorum = phase2Quorum;
+    this.witnessPorts = Collections.unmodifiableSet(new HashSet<>(witnessPorts));
+  }
+
+  /**
+   * Constructs a QuorumConfig from the {@code paxos.phase1Quorum} and {@code paxos.phase2Quorum}
+   * system properties, both defaulting to a majority, and the comma-separated port list in
+   * {@code paxos.witnessPorts}, which defaults to no witnesses.
+   *
+   * @return the configuration
+   * @throws IllegalArgumentException if a property is not a number
+   */
+  public static QuorumConfig fromSystemProperties() {
+    Set<Integer> witnesses = new HashSet<>();
+    for (String port : System.getProperty("paxos.witnessPorts", "").split(",")) {
+      if (!port.trim().isEmpty()) {
+        witnesses.add(Integer.parseInt(port.trim()));
+      }
+    }
+    return new QuorumConfig(Integer.getInteger("paxos.phase1Quorum", 0),
+            Integer.getInteger("paxos.phase2Quorum", 0), witnesses);
+  }
+
+  /**
+   * Returns the number of promises a proposer needs in a cluster of the given size.
+   *
+   * @param replicas the number of replicas in the cluster
+   * @return the phase 1 quorum size
+   */
+  public int phase1Size(int replicas) {
+    return phase1Quorum == 0 ? replicas / 2 + 1 : phase1Quorum;
+  }
+
+  /**
+   * Returns the number of accepts a proposer waits for in a cluster of the given size.
+   *
+   * @param replicas the number of replicas in the cluster
+   * @return the phase 2 quorum size
+   */
+  public int phase2Size(int replicas) {
+    return phase2Quorum == 0 ? replicas / 2 + 1 : phase2Quorum;
+  }
+
+  /**
+   * Checks if the replica at the given port is a witness.
+   *
+   * @param port the port of the replica
+   * @return true if the replica stores no values, false otherwise
+   */
+  public boolean isWitness(int port) {
+    return witnessPorts.contains(port);
+  }
+
+  /**
+   * Checks that the configuration is safe for a cluster of the given size: both quorums fit in
+   * the cluster, every phase 1 quorum intersects every phase 2 quorum, and at least one replica
+   * stores values.
+   *
+   * @param replicas the number of replicas in the cluster
+   * @throws IllegalArgumentException if the configuration is unsafe
+   */
+  public void validate(int replicas) {
+    int q1 = phase1Size(replicas);
+    int q2 = phase2Size(replicas);
+    if (q1 > replicas || q2 > replicas) {
+      throw new IllegalArgumentException("Quorums of " + q1 + " and " + q2 + " do not fit in " + replicas
+              + " replicas");
+    }
+    if (q1 + q2 <= replicas) {
+      throw new IllegalArgumentException("Phase 1 quorum " + q1 + " and phase 2 quorum " + q2
+              + " may not intersect in " + replicas + " replicas; they must add up to more than " + replicas);
+    }
+    if (witnessPorts.size() >= replicas) {
+      throw new IllegalArgumentException("At least one of the " + replicas + " replicas must not be a witness");
+    }
+  }
+}
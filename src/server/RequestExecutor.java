@@ -0,0 +1,236 @@
+package server;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Controls how a server executes client requests and the peer calls they fan out to.
+ * <p>
+ * Client requests must be admitted before they run. At most {@code maxConcurrentRequests} run at
+ * once; a request that cannot be admitted within the admission timeout is shed, so the server
+ * answers "busy" straight away instead of queueing work it cannot finish in time.
+ * <p>
+ * Peer calls of a Paxos phase are sent concurrently, one task per peer, so a round waits for the
+ * slowest peer rather than for the sum of all of them. On a JVM with virtual threads each task gets
+ * its own virtual thread, which costs next to nothing while blocked on a remote call; older JVMs
+ * fall back to a cached pool of platform threads.
+ * <p>
+ * The limits are read from the {@code paxos.maxConcurrentRequests} (default 1024) and
+ * {@code paxos.admissionTimeoutMs} (default 100) system properties.
+ */
+public class RequestExecutor {
+
+  private static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 1024;
+  private static final long DEFAULT_ADMISSION_TIMEOUT_MS = 100;
+
+  private final int maxConcurrentRequests;
+  private final long admissionTimeoutMs;
+  private final Semaphore permits;
+  private final ExecutorService peerCallExecutor;
+
+  /**
+   * Constructs a RequestExecutor with the limits set through system properties.
+   */
+  public RequestExecutor() {
+    this(Integer.getInteger("paxos.maxConcurrentRequests", DEFAULT_MAX_CONCURRENT_REQUESTS),
+            Long.getLong("paxos.admissionTimeoutMs", DEFAULT_ADMISSION_TIMEOUT_MS), newPeerCallExecutor());
+  }
+
+  /**
+   * Constructs a RequestExecutor with the given limits.
+   *
+   * @param maxConcurrentRequests the maximum number of client requests running at once
+   * @param admissionTimeoutMs how long a request may wait to be admitted before it is shed
+   * @param peerCallExecutor runs peer calls, or null to make them one after another on the calling thread
+   */
+  public RequestExecutor(int maxConcurrentRequests, long admissionTimeoutMs, ExecutorService peerCallExecutor) {
+    if (maxConcurrentRequests <= 0 || admissionTimeoutMs < 0) {
+      throw new IllegalArgumentException("maxConcurrentRequests must be positive and admissionTimeoutMs not negative");
+    }
+    this.maxConcurrentRequests = maxConcurrentRequests;
+    this.admissionTimeoutMs = admissionTimeoutMs;
+    this.permits = new Semaphore(maxConcurrentRequests);
+    this.peerCallExecutor = peerCallExecutor;
+  }
+
+  /**
+   * Constructs a RequestExecutor that admits every request and makes peer calls one after another
+   * on the calling thread, in list order. The deterministic simulator relies on this ordering.
+   *
+   * @return the sequential executor
+   */
+  public static RequestExecutor sequential() {
+    return new RequestExecutor(Integer.MAX_VALUE, 0, null);
+  }
+
+  /**
+   * Tries to admit a client request, waiting at most the admission timeout for a running request
+   * to finish. Every successful call must be paired with a call to {@link #release()}.
+   *
+   * @return true if the request was admitted, false if it should be shed
+   */
+  public boolean tryAdmit() {
+    try {
+      return permits.tryAcquire(admissionTimeoutMs, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  /**
+   * Releases the slot of a request admitted by {@link #tryAdmit()}.
+   */
+  public void release() {
+    permits.release();
+  }
+
+  /**
+   * Returns the number of client requests currently running.
+   *
+   * @return the number of admitted requests that have not been released
+   */
+  public int getInFlightRequests() {
+    return maxConcurrentRequests - permits.availablePermits();
+  }
+
+  /**
+   * Calls every peer concurrently and waits for all of them to answer.
+   *
+   * @param peers the peers to call
+   * @param call the call to make on each peer
+   * @param <P> the type of the peers
+   * @param <T> the type of the answers
+   * @return the answer of each peer, in the order of {@code peers}
+   * @throws ExecutionException if a call threw; the cause is the call's exception
+   * @throws InterruptedException if interrupted while waiting for the answers
+   */
+  public <P, T> List<T> callAll(List<P> peers, PeerCall<P, T> call) throws ExecutionException, InterruptedException {
+    List<T> answers = new ArrayList<>(peers.size());
+    if (peerCallExecutor == null) {
+      for (P peer : peers) {
+        try {
+          answers.add(call.call(peer));
+        } catch (Exception e) {
+          throw new ExecutionException(e);
+        }
+      }
+      return answers;
+    }
+    List<Future<T>> futures = new ArrayList<>(peers.size());
+    for (P peer : peers) {
+      futures.add(peerCallExecutor.submit((Callable<T>) () -> call.call(peer)));
+    }
+    for (Future<T> future : futures) {
+      answers.add(future.get());
+    }
+    return answers;
+  }
+
+  /**
+   * Calls every peer concurrently and returns as soon as {@code quorum} of them have answered
+   * with a non-null value, or once all have answered. Calls still in flight carry on in the
+   * background. When peer calls run on the calling thread, the remaining peers are still called
+   * once the quorum is reached, so that every peer gets the request as it would in production,
+   * but their answers and failures are ignored.
+   *
+   * @param peers the peers to call
+   * @param call the call to make on each peer
+   * @param quorum the number of non-null answers to wait for
+   * @param <P> the type of the peers
+   * @param <T> the type of the answers
+   * @return the non-null answers received, in the order they arrived
+   * @throws ExecutionException if a call threw; the cause is the call's exception
+   * @throws InterruptedException if interrupted while waiting for the answers
+   */
+  public <P, T> List<T> callQuorum(List<P> peers, PeerCall<P, T> call, int quorum)
+          throws ExecutionException, InterruptedException {
+    List<T> answers = new ArrayList<>(quorum);
+    if (peerCallExecutor == null) {
+      for (P peer : peers) {
+        boolean waited = answers.size() < quorum;
+        T answer;
+        try {
+          answer = call.call(peer);
+        } catch (Exception e) {
+          if (!waited) {
+            continue; // nobody waits on this call in production either
+          }
+          throw new ExecutionException(e);
+        }
+        if (answer != null && waited) {
+          answers.add(answer);
+        }
+      }
+      return answers;
+    }
+    CompletionService<T> completions = new ExecutorCompletionService<>(peerCallExecutor);
+    for (P peer : peers) {
+      completions.submit(() -> call.call(peer));
+    }
+    for (int received = 0; received < peers.size() && answers.size() < quorum; received++) {
+      T answer = completions.take().get();
+      if (answer != null) {
+        answers.add(answer);
+      }
+    }
+    return answers;
+  }
+
+  /**
+   * Stops the threads making peer calls.
+   */
+  public void shutdown() {
+    if (peerCallExecutor != null) {
+      peerCallExecutor.shutdown();
+    }
+  }
+
+  /**
+   * A call made on one peer during a fan-out.
+   *
+   * @param <P> the type of the peer
+   * @param <T> the type of the answer
+   */
+  public interface PeerCall<P, T> {
+
+    /**
+     * Makes the call on the given peer.
+     *
+     * @param peer the peer to call
+     * @return the peer's answer
+     * @throws Exception if the call fails
+     */
+    T call(P peer) throws Exception;
+  }
+
+  /**
+   * Creates a virtual-thread-per-task executor when the JVM supports virtual threads, and a cached
+   * pool of daemon platform threads otherwise. The lookup is reflective so the code still builds
+   * and runs on Java 11.
+   */
+  private static ExecutorService newPeerCallExecutor() {
+    try {
+      Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      return (ExecutorService) factory.invoke(null);
+    } catch (ReflectiveOperationException e) {
+      AtomicInteger threadCount = new AtomicInteger();
+      return Executors.newCachedThreadPool(task -> {
+        Thread thread = new Thread(task, "peer-call-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+  }
+}
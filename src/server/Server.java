@@ -2,6 +2,8 @@ package server;
 
 import java.rmi.Remote;
 import java.rmi.RemoteException;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
 
 
@@ -39,5 +41,128 @@ public interface Server extends Remote {
    */
   String delete(String key) throws RemoteException, ExecutionException, InterruptedException;
 
+  /**
+   * Puts a binary value under the specified key, replacing any string or binary value it had.
+   * The value is replicated and stored exactly as given, so a value compressed by the client
+   * stays compressed on the wire and in every replica.
+   *
+   * @param key the key with which the value is to be associated
+   * @param value the binary value
+   * @return a message indicating the result of the operation
+   * @throws RemoteException if a remote communication error occurs
+   */
+  String putBinary(String key, BinaryValue value) throws RemoteException, ExecutionException, InterruptedException;
+
+  /**
+   * Retrieves the binary value associated with the specified key, as it was put.
+   *
+   * @param key the key whose binary value is to be returned
+   * @return the binary value, or null if the key holds no binary value
+   * @throws RemoteException if a remote communication error occurs, or the server is too busy to serve the read
+   */
+  BinaryValue getBinary(String key) throws RemoteException;
+
+  /**
+   * Puts every key-value pair of the given map into the store as a single agreed-upon command,
+   * so a whole batch costs one consensus round. Used by bulk imports.
+   *
+   * @param entries the keys and values to store
+   * @return a message indicating the result of the operation
+   * @throws RemoteException if a remote communication error occurs
+   */
+  String putAll(Map<String, String> entries) throws RemoteException, ExecutionException, InterruptedException;
+
+  /**
+   * Opens an export of the store, covering both string and binary values. Writes are not paused
+   * while it runs: its entries are read in chunks with {@link #exportChunk(long, int)} and
+   * {@link #finishExport(long)} then returns the corrections that turn them into an exact snapshot.
+   *
+   * @return the identifier of the export
+   * @throws RemoteException if a remote communication error occurs
+   */
+  long openExport() throws RemoteException;
+
+  /**
+   * Reads the next entries of an open export.
+   *
+   * @param exportId the identifier of the export
+   * @param maxEntries the maximum number of entries to return
+   * @return the entries read, each as a put or binary put of its value; empty once the whole store was read
+   * @throws RemoteException if a remote communication error occurs
+   * @throws IllegalArgumentException if the export is not open
+   */
+  List<Command> exportChunk(long exportId, int maxEntries) throws RemoteException;
+
+  /**
+   * Closes an export and returns the current state of every key written while it was open.
+   * Replacing the exported entries of those keys with these commands, and dropping the ones that
+   * are deletes, gives the content of the store when the export finished.
+   *
+   * @param exportId the identifier of the export
+   * @return a put or binary put of the current value of every key written during the export, or a delete for a
+   *         removed key
+   * @throws RemoteException if a remote communication error occurs
+   * @throws IllegalArgumentException if the export is not open
+   */
+  List<Command> finishExport(long exportId) throws RemoteException;
+
+  /**
+   * Retrieves the value associated with the specified key along with its version.
+   * Transactions use the version to detect conflicting writes when they commit.
+   *
+   * @param key the key whose value is to be returned
+   * @return the value and version of the key; the value is null and the version 0 if the key is absent
+   * @throws RemoteException if a remote communication error occurs, or the server is too busy to serve the read
+   */
+  VersionedValue getVersioned(String key) throws RemoteException;
+
+  /**
+   * Commits a transaction as a single agreed-upon command. The writes are applied atomically
+   * only if none of the keys the transaction read has changed since it read them.
+   *
+   * @param transaction the reads and writes of the transaction
+   * @return a message indicating whether the transaction committed
+   * @throws RemoteException if a remote communication error occurs
+   */
+  String commit(TransactionCommand transaction) throws RemoteException, ExecutionException, InterruptedException;
+
+  /**
+   * Subscribes the listener to every committed put and delete whose key starts with the given
+   * key or prefix. Changes are pushed in log order starting at {@code fromIndex}, so a listener
+   * that reconnects can resume from the index following the last event it received.
+   *
+   * @param keyOrPrefix the key or key prefix to watch; an empty string watches every key
+   * @param fromIndex the first log index to deliver, or a negative value to receive only new changes
+   * @param listener the remote listener the changes are pushed to
+   * @return the identifier of the subscription, used to cancel it
+   * @throws RemoteException if a remote communication error occurs
+   * @throws IllegalArgumentException if {@code fromIndex} is no longer retained by the server
+   */
+  long watch(String keyOrPrefix, long fromIndex, WatchListener listener) throws RemoteException;
+
+  /**
+   * Cancels a subscription created by {@link #watch(String, long, WatchListener)}.
+   *
+   * @param subscriptionId the identifier of the subscription to cancel
+   * @throws RemoteException if a remote communication error occurs
+   * @throws IllegalArgumentException if this server is restricted to a namespace and the
+   *         subscription was not created through it
+   */
+  void unwatch(long subscriptionId) throws RemoteException;
+
+  /**
+   * Returns the store as seen from inside the given namespace. Keys passed to the returned
+   * server are kept apart from those of every other namespace, and writes to them count against
+   * the namespace's quotas and rate limit. The {@value Namespace#DEFAULT} namespace is the
+   * store itself. Only namespaces declared on the servers can be used. A server already
+   * restricted to a namespace returns itself for that namespace and refuses any other.
+   *
+   * @param name the name of the namespace, made of letters, digits, underscores and hyphens
+   * @return the server restricted to the namespace
+   * @throws RemoteException if a remote communication error occurs
+   * @throws IllegalArgumentException if the name is invalid or not declared, or names another
+   *         namespace than the one this server is restricted to
+   */
+  Server namespace(String name) throws RemoteException;
 
 }
@@ -1,5 +1,7 @@
 package server;
 
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.rmi.NotBoundException;
 import java.rmi.RemoteException;
 import java.rmi.registry.LocateRegistry;
@@ -9,17 +11,24 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
 /**
  * ServerApp is the entry point for starting the server.
  */
 public class ServerApp {
 
   private static final int SERVER_COUNT = 5;
+  private static final int DEFAULT_METRICS_PORT = 9100;
 
   private static List<PaxosServer> servers = new ArrayList<>();
 
   private static List<Server> stubs = new ArrayList<>();
   private static List<Integer> serverPorts = new ArrayList<>();
+  private static List<PaxosMetrics> serverMetrics = new ArrayList<>();
+  private static MetricsEndpoint metricsEndpoint;
 
   /**
    * The main method starts the server by initializing and binding the RMI server implementation.
@@ -40,7 +49,14 @@ public class ServerApp {
     } else
       serverPorts = Arrays.asList(5000, 5001, 5002, 5003, 5004);
 
+    try {
+      QuorumConfig.fromSystemProperties().validate(SERVER_COUNT);
+    } catch (IllegalArgumentException e) {
+      System.out.println("Invalid quorum configuration: " + e.getMessage());
+      System.exit(1);
+    }
     serverSetup(serverPorts);
+    metricsSetup();
     ServerOperator serverOperator = new ServerOperator();
     serverOperator.start();
     try {
@@ -49,15 +65,23 @@ public class ServerApp {
       System.out.println("Main thread interrupted while waiting for server operator to close.");
     }
     System.out.println("Main thread exiting");
+    if (metricsEndpoint != null) {
+      metricsEndpoint.stop();
+    }
     serverShutDown();
     System.exit(0);
     }
 
 
   /**
-   * Shuts down the created servers after removing from the registry.
+   * Stops the background threads of the created servers and removes them from the registry.
    */
   private static void serverShutDown() {
+    for (PaxosServer server : servers) {
+      if (server instanceof PaxosServerImpl) {
+        ((PaxosServerImpl) server).shutdown();
+      }
+    }
     for (int i = 0; i < SERVER_COUNT; i++) {
       try {
         Registry registry = LocateRegistry.getRegistry(serverPorts.get(i));
@@ -82,7 +106,8 @@ public class ServerApp {
           try {
             Registry registry = LocateRegistry.createRegistry(serverPorts.get(i));
             retryCount = retryMax + 2;
-            PaxosServer obj = new PaxosServerImpl(serverPorts.get(i));
+            PaxosServerImpl obj = new PaxosServerImpl(serverPorts.get(i));
+            serverMetrics.add(obj.getMetrics());
             Server stub = (Server) UnicastRemoteObject.exportObject(obj, 0);
             stubs.add(stub);
             servers.add(obj);
@@ -111,6 +136,34 @@ public class ServerApp {
     }
 
 
+  /**
+   * Registers the metrics of every server with JMX and serves them as plain text on the port
+   * given by the {@code metrics.port} system property. A negative port disables the endpoint.
+   */
+  private static void metricsSetup() {
+    MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+    for (int i = 0; i < serverMetrics.size(); i++) {
+      try {
+        mBeanServer.registerMBean(serverMetrics.get(i),
+                new ObjectName("server:type=PaxosMetrics,port=" + serverPorts.get(i)));
+      } catch (JMException e) {
+        System.out.println("Error registering metrics of server at port:" + serverPorts.get(i)
+                + " Error:" + e.getMessage());
+      }
+    }
+    int metricsPort = Integer.getInteger("metrics.port", DEFAULT_METRICS_PORT);
+    if (metricsPort < 0) {
+      return;
+    }
+    try {
+      metricsEndpoint = new MetricsEndpoint(metricsPort, serverMetrics);
+      metricsEndpoint.start();
+      System.out.println("Metrics available at http://localhost:" + metricsPort + "/metrics");
+    } catch (IOException e) {
+      System.out.println("Error starting metrics endpoint at port:" + metricsPort + " Error:" + e.getMessage());
+    }
+  }
+
   private static int getRandomNumber(int min, int max) {
     return (int) ((Math.random() * (max - min)) + min);
   }
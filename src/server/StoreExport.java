@@ -0,0 +1,179 @@
+package server;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An export of a replica's map and blob stores that runs while writes carry on.
+ * <p>
+ * The stores are read in chunks straight from the live maps, string values first and then
+ * binary ones, without copying them or holding any lock, so the entries handed out form a fuzzy
+ * snapshot: a key written while the export runs may be handed out with either value, or not at
+ * all. The learner reports every key it writes while the export is open, and when the export
+ * finishes those keys are read again, under the learner's lock, as corrections. Applying the
+ * corrections over the chunks gives the exact content of the store at the moment the export
+ * finished. Memory use is bounded by the number of keys written during the export, not by the
+ * size of the store.
+ * <p>
+ * An export of one namespace reads only the keys that namespace keeps, looking up each value as
+ * it goes, and reports only writes to its own keys.
+ */
+public class StoreExport {
+
+  private final long id;
+  private final String namespace;
+  private final Iterator<Map.Entry<String, String>> entries;
+  private final Iterator<Map.Entry<String, BinaryValue>> binaryEntries;
+  private final Iterator<String> keys;
+  private final Map<String, String> mapStore;
+  private final Map<String, BinaryValue> blobStore;
+  private final Set<String> changedKeys;
+  private volatile long lastUsed;
+
+  /**
+   * Constructs a StoreExport reading the given store. It must be registered with the learner
+   * before it reads anything, so that no write goes unreported.
+   *
+   * @param id the identifier of the export
+   * @param mapStore the string values to export; its iterators must tolerate concurrent writes
+   * @param blobStore the binary values to export; its iterators must tolerate concurrent writes
+   * @param now the current time in milliseconds
+   */
+  public StoreExport(long id, Map<String, String> mapStore, Map<String, BinaryValue> blobStore, long now) {
+    this.id = id;
+    this.namespace = Namespace.DEFAULT;
+    this.entries = mapStore.entrySet().iterator();
+    this.binaryEntries = blobStore.entrySet().iterator();
+    this.keys = null;
+    this.mapStore = mapStore;
+    this.blobStore = blobStore;
+    this.changedKeys = ConcurrentHashMap.newKeySet();
+    this.lastUsed = now;
+  }
+
+  /**
+   * Constructs a StoreExport reading the keys of one namespace. It must be registered with the
+   * learner before it reads anything, so that no write goes unreported.
+   *
+   * @param id the identifier of the export
+   * @param namespace the namespace to export
+   * @param keys the keys of the namespace; its iterators must tolerate concurrent writes
+   * @param mapStore the string values of the store
+   * @param blobStore the binary values of the store
+   * @param now the current time in milliseconds
+   */
+  public StoreExport(long id, Namespace namespace, Map<String, String> mapStore, Map<String, BinaryValue> blobStore,
+                     long now) {
+    this.id = id;
+    this.namespace = namespace.getName();
+    this.entries = null;
+    this.binaryEntries = null;
+    this.keys = namespace.getKeys().iterator();
+    this.mapStore = mapStore;
+    this.blobStore = blobStore;
+    this.changedKeys = ConcurrentHashMap.newKeySet();
+    this.lastUsed = now;
+  }
+
+  /**
+   * Reads the next entries of the store.
+   *
+   * @param maxEntries the maximum number of entries to return
+   * @param now the current time in milliseconds
+   * @return the entries read as puts of their values, in no particular order; empty once the whole store was read
+   */
+  public synchronized List<Command> nextChunk(int maxEntries, long now) {
+    lastUsed = now;
+    List<Command> chunk = new ArrayList<>();
+    if (keys != null) {
+      while (chunk.size() < maxEntries && keys.hasNext()) {
+        String key = keys.next();
+        String value = mapStore.get(key);
+        BinaryValue binary = blobStore.get(key);
+        // A key removed since it was listed is left out; the corrections will delete it
+        if (value != null) {
+          chunk.add(Command.put(key, value));
+        } else if (binary != null) {
+          chunk.add(Command.putBinary(key, binary));
+        }
+      }
+      return chunk;
+    }
+    while (chunk.size() < maxEntries && entries.hasNext()) {
+      Map.Entry<String, String> entry = entries.next();
+      chunk.add(Command.put(entry.getKey(), entry.getValue()));
+    }
+    while (chunk.size() < maxEntries && binaryEntries.hasNext()) {
+      Map.Entry<String, BinaryValue> entry = binaryEntries.next();
+      chunk.add(Command.putBinary(entry.getKey(), entry.getValue()));
+    }
+    return chunk;
+  }
+
+  /**
+   * Records that the learner wrote the given key while the export was open.
+   *
+   * @param key the key written
+   */
+  public void keyChanged(String key) {
+    if (keys == null || Namespace.nameOf(key).equals(namespace)) {
+      changedKeys.add(key);
+    }
+  }
+
+  /**
+   * Reads the current value of every key written since the export was opened. The caller must
+   * hold the learner's lock so that the corrections reflect one point in the log.
+   *
+   * @param mapStore the string values being exported
+   * @param blobStore the binary values being exported
+   * @return a put of the current value of each written key, or a delete for a key no longer present
+   */
+  public List<Command> corrections(Map<String, String> mapStore, Map<String, BinaryValue> blobStore) {
+    List<Command> corrections = new ArrayList<>(changedKeys.size());
+    for (String key : changedKeys) {
+      String value = mapStore.get(key);
+      BinaryValue binary = blobStore.get(key);
+      if (value != null) {
+        corrections.add(Command.put(key, value));
+      } else if (binary != null) {
+        corrections.add(Command.putBinary(key, binary));
+      } else {
+        corrections.add(Command.delete(key));
+      }
+    }
+    return corrections;
+  }
+
+  /**
+   * Checks if the export was last used before the given time, meaning its client has gone away.
+   *
+   * @param time the time in milliseconds
+   * @return true if no chunk was read since that time, false otherwise
+   */
+  public boolean isIdleSince(long time) {
+    return lastUsed < time;
+  }
+
+  /**
+   * Returns the namespace this export reads, {@value Namespace#DEFAULT} for the whole store.
+   *
+   * @return the namespace name
+   */
+  public String getNamespace() {
+    return namespace;
+  }
+
+  /**
+   * Returns the identifier of this export.
+   *
+   * @return the export identifier
+   */
+  public long getId() {
+    return id;
+  }
+}
@@ -0,0 +1,56 @@
+package server;
+
+import java.util.function.LongSupplier;
+
+/**
+ * A token bucket rate limiter. Tokens accrue at a fixed rate up to the bucket's capacity, and
+ * each unit of work takes one. Short bursts up to the capacity pass straight away, while the
+ * long-run rate cannot exceed the refill rate.
+ * <p>
+ * A request for more tokens than the bucket can ever hold is let through once the bucket is
+ * full and leaves it in debt, so large batches are not refused forever but still pay for every
+ * unit before anything else is admitted.
+ */
+public class TokenBucket {
+
+  private final double tokensPerNano;
+  private final double capacity;
+  private final LongSupplier nanoClock;
+  private double tokens;
+  private long lastRefill;
+
+  /**
+   * Constructs a full TokenBucket.
+   *
+   * @param ratePerSecond the number of tokens added per second
+   * @param capacity the maximum number of tokens the bucket holds
+   * @param nanoClock supplies the current time in nanoseconds
+   */
+  public TokenBucket(double ratePerSecond, double capacity, LongSupplier nanoClock) {
+    if (ratePerSecond <= 0 || capacity <= 0) {
+      throw new IllegalArgumentException("Rate and capacity must be positive");
+    }
+    this.tokensPerNano = ratePerSecond / 1e9;
+    this.capacity = capacity;
+    this.nanoClock = nanoClock;
+    this.tokens = capacity;
+    this.lastRefill = nanoClock.getAsLong();
+  }
+
+  /**
+   * Takes the given number of tokens if they are available.
+   *
+   * @param permits the number of tokens to take
+   * @return true if the tokens were taken, false if the caller must wait
+   */
+  public synchronized boolean tryAcquire(double permits) {
+    long now = nanoClock.getAsLong();
+    tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+    lastRefill = now;
+    if (tokens < Math.min(permits, capacity)) {
+      return false;
+    }
+    tokens -= permits;
+    return true;
+  }
+}
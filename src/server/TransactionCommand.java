@@ -0,0 +1,103 @@
+package server;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Represents a multi-key transaction that is agreed upon as a single Paxos command.
+ * It carries the versions of every key the transaction read and the writes it buffered.
+ * Learners apply the writes atomically only if none of the keys read has changed since,
+ * which gives optimistic concurrency control without holding any lock between client calls.
+ */
+public class TransactionCommand implements Consumer<Map<String, String>>, Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private final String id;
+  private final Map<String, Long> readVersions;
+  private final List<Command> writes;
+
+  /**
+   * Constructs a TransactionCommand with the specified reads and writes.
+   *
+   * @param id the unique identifier of the transaction
+   * @param readVersions the version of each key read by the transaction
+   * @param writes the writes to apply, in order
+   */
+  public TransactionCommand(String id, Map<String, Long> readVersions, List<Command> writes) {
+    this.id = id;
+    this.readVersions = new HashMap<>(readVersions);
+    this.writes = new ArrayList<>(writes);
+  }
+
+  /**
+   * Returns the same transaction with the given prefix added to every key it read or writes,
+   * as stored by a namespace. The prefix is added to the transaction id too, since outcomes are
+   * recorded by id across the whole store and two namespaces may pick the same id.
+   *
+   * @param prefix the prefix to add to the keys
+   * @return the prefixed transaction
+   */
+  public TransactionCommand withKeyPrefix(String prefix) {
+    Map<String, Long> prefixedReads = new HashMap<>();
+    for (Map.Entry<String, Long> read : readVersions.entrySet()) {
+      prefixedReads.put(prefix + read.getKey(), read.getValue());
+    }
+    List<Command> prefixedWrites = new ArrayList<>(writes.size());
+    for (Command write : writes) {
+      prefixedWrites.add(write.withKeyPrefix(prefix));
+    }
+    return new TransactionCommand(prefix + id, prefixedReads, prefixedWrites);
+  }
+
+  /**
+   * Checks that none of the keys read by the transaction changed since they were read.
+   *
+   * @param versionStore the current version of each key ever written
+   * @return true if the transaction can be committed, false if it conflicts
+   */
+  public boolean isValid(Map<String, Long> versionStore) {
+    for (Map.Entry<String, Long> read : readVersions.entrySet()) {
+      if (versionStore.getOrDefault(read.getKey(), 0L).longValue() != read.getValue()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Applies every write of the transaction to the given map store.
+   * Callers are expected to have checked {@link #isValid(Map)} first.
+   *
+   * @param mapStore the store to update
+   */
+  @Override
+  public void accept(Map<String, String> mapStore) {
+    for (Command write : writes) {
+      write.accept(mapStore);
+    }
+  }
+
+  /**
+   * Returns the unique identifier of the transaction.
+   *
+   * @return the transaction identifier
+   */
+  public String getId() {
+    return id;
+  }
+
+  /**
+   * Returns the writes of the transaction, in order.
+   *
+   * @return the buffered writes
+   */
+  public List<Command> getWrites() {
+    return Collections.unmodifiableList(writes);
+  }
+}
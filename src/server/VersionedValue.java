@@ -0,0 +1,47 @@
+package server;
+
+import java.io.Serializable;
+
+/**
+ * Represents the value of a key together with the version it was read at.
+ * The version is the id of the Paxos proposal that last changed the key, raised past the key's
+ * previous version when several changes share a proposal id, or 0 if the key was never written.
+ * A deleted key keeps the version of its delete.
+ * Transactions record these versions to detect conflicting writes at commit time.
+ */
+public class VersionedValue implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private final String value;
+  private final long version;
+
+  /**
+   * Constructs a VersionedValue with the specified value and version.
+   *
+   * @param value the value read, or null if the key is absent
+   * @param version the version of the key when it was read
+   */
+  public VersionedValue(String value, long version) {
+    this.value = value;
+    this.version = version;
+  }
+
+  /**
+   * Returns the value read.
+   *
+   * @return the value, or null if the key is absent
+   */
+  public String getValue() {
+    return value;
+  }
+
+  /**
+   * Returns the version of the key when it was read.
+   *
+   * @return the version, or 0 if the key is absent
+   */
+  public long getVersion() {
+    return version;
+  }
+}
@@ -0,0 +1,31 @@
+package server;
+
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+import java.util.List;
+
+/**
+ * Callback interface implemented by clients that watch the store for committed changes.
+ * The server pushes events in log order, one batch at a time, and does not send the next
+ * batch until the previous call has returned.
+ */
+public interface WatchListener extends Remote {
+
+  /**
+   * Receives a batch of committed changes, ordered by log index.
+   *
+   * @param events the changes applied since the previous batch
+   * @throws RemoteException if a remote communication error occurs
+   */
+  void onEvents(List<ChangeEvent> events) throws RemoteException;
+
+  /**
+   * Notifies the listener that it fell behind the server's retained change log and the
+   * subscription was cancelled. The listener should re-read the keys it cares about and
+   * watch again from {@code oldestIndex} or later.
+   *
+   * @param oldestIndex the oldest index the server still retains
+   * @throws RemoteException if a remote communication error occurs
+   */
+  void onTruncated(long oldestIndex) throws RemoteException;
+}
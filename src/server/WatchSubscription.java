@@ -0,0 +1,129 @@
+package server;
+
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.List;
+
+import shared.Logger;
+
+/**
+ * A runnable that streams the changes of a {@link ChangeLog} matching a key or prefix to a
+ * {@link WatchListener}. Each subscription keeps only a cursor into the shared change log, so
+ * the server buffers nothing per subscriber. A slow listener is pushed back on naturally, since
+ * the next batch is read only after the previous delivery returns; if it falls further behind
+ * than the log retains, it is told to resume and the subscription ends.
+ */
+public class WatchSubscription implements Runnable {
+
+  private static final int MAX_BATCH_SIZE = 128;
+  private static final long POLL_TIMEOUT = 1000;
+
+  private static Logger logger = new Logger(System.out, true);
+
+  private final long id;
+  private final String namespace;
+  private final String keyOrPrefix;
+  private final WatchListener listener;
+  private final ChangeLog changeLog;
+  private volatile boolean active;
+  private long cursor;
+
+  /**
+   * Constructs a WatchSubscription delivering changes from the given index onwards.
+   *
+   * @param id the identifier of this subscription
+   * @param namespace the namespace the subscription was opened in
+   * @param keyOrPrefix the key or key prefix to watch; an empty string matches every key
+   * @param fromIndex the first log index to deliver
+   * @param listener the listener to deliver changes to
+   * @param changeLog the change log to read from
+   */
+  public WatchSubscription(long id, String namespace, String keyOrPrefix, long fromIndex, WatchListener listener,
+                           ChangeLog changeLog) {
+    this.id = id;
+    this.namespace = namespace;
+    this.keyOrPrefix = keyOrPrefix;
+    this.listener = listener;
+    this.changeLog = changeLog;
+    this.cursor = fromIndex;
+    this.active = true;
+  }
+
+  /**
+   * Delivers matching changes to the listener until the subscription is cancelled, the
+   * listener becomes unreachable or the listener falls behind the retained change log.
+   */
+  @Override
+  public void run() {
+    while (active) {
+      try {
+        List<ChangeEvent> batch = changeLog.read(cursor, MAX_BATCH_SIZE, POLL_TIMEOUT);
+        if (batch.isEmpty()) {
+          continue;
+        }
+        cursor = batch.get(batch.size() - 1).getIndex() + 1;
+        List<ChangeEvent> matching = new ArrayList<>();
+        for (ChangeEvent event : batch) {
+          if (event.getKey().startsWith(keyOrPrefix)) {
+            matching.add(event);
+          }
+        }
+        if (!matching.isEmpty()) {
+          listener.onEvents(matching);
+        }
+      } catch (IndexOutOfBoundsException e) {
+        log("Watcher fell behind the change log at index " + cursor + ", cancelling.");
+        active = false;
+        try {
+          listener.onTruncated(changeLog.getOldestIndex());
+        } catch (RemoteException re) {
+          log("Unable to notify watcher of truncation");
+        }
+      } catch (RemoteException e) {
+        log("Watcher unreachable, cancelling.");
+        active = false;
+      } catch (InterruptedException e) {
+        active = false;
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * Cancels the subscription. Delivery stops after the batch currently in flight, if any.
+   */
+  public void cancel() {
+    active = false;
+  }
+
+  /**
+   * Checks if the subscription is still delivering changes.
+   *
+   * @return true if the subscription is active, false otherwise
+   */
+  public boolean isActive() {
+    return active;
+  }
+
+  /**
+   * Returns the namespace the subscription was opened in.
+   *
+   * @return the namespace name
+   */
+  public String getNamespace() {
+    return namespace;
+  }
+
+  /**
+   * Returns the identifier of this subscription.
+   *
+   * @return the subscription identifier
+   */
+  public long getId() {
+    return id;
+  }
+
+  private void log(String message) {
+    logger.log("Watch:" + id + ":" + message);
+  }
+}
@@ -0,0 +1,129 @@
+package shared;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free latency histogram with log-linear buckets, in the style of HdrHistogram.
+ * Values below 128 are counted exactly; larger values fall into one of 64 linear sub-buckets
+ * per power of two, which bounds the relative error of reported percentiles to under 2%
+ * while covering any non-negative long in a few thousand counters.
+ * Recording is a handful of atomic increments and never allocates.
+ */
+public class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 6;
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+  private static final int EXACT_LIMIT = SUB_BUCKET_COUNT * 2;
+  private static final int BUCKET_COUNT = EXACT_LIMIT + (63 - SUB_BUCKET_BITS - 1) * SUB_BUCKET_COUNT;
+
+  private final AtomicLongArray counts;
+  private final AtomicLong totalCount;
+  private final AtomicLong totalValue;
+  private final AtomicLong maxValue;
+
+  /**
+   * Constructs an empty LatencyHistogram.
+   */
+  public LatencyHistogram() {
+    counts = new AtomicLongArray(BUCKET_COUNT);
+    totalCount = new AtomicLong();
+    totalValue = new AtomicLong();
+    maxValue = new AtomicLong();
+  }
+
+  /**
+   * Records a single value. Negative values are recorded as zero.
+   *
+   * @param value the value to record, typically a latency in nanoseconds
+   */
+  public void record(long value) {
+    long v = Math.max(0, value);
+    counts.incrementAndGet(indexOf(v));
+    totalCount.incrementAndGet();
+    totalValue.addAndGet(v);
+    long max = maxValue.get();
+    while (v > max && !maxValue.compareAndSet(max, v)) {
+      max = maxValue.get();
+    }
+  }
+
+  /**
+   * Records the nanoseconds elapsed since the given {@link System#nanoTime()} reading.
+   *
+   * @param startNanos the value of {@link System#nanoTime()} when the timed operation started
+   */
+  public void recordSince(long startNanos) {
+    record(System.nanoTime() - startNanos);
+  }
+
+  /**
+   * Returns the number of values recorded.
+   *
+   * @return the total count
+   */
+  public long getCount() {
+    return totalCount.get();
+  }
+
+  /**
+   * Returns the mean of the recorded values.
+   *
+   * @return the mean, or 0 if nothing was recorded
+   */
+  public double getMean() {
+    long count = totalCount.get();
+    return count == 0 ? 0 : (double) totalValue.get() / count;
+  }
+
+  /**
+   * Returns the largest value recorded.
+   *
+   * @return the maximum, or 0 if nothing was recorded
+   */
+  public long getMax() {
+    return maxValue.get();
+  }
+
+  /**
+   * Returns the value at the given percentile. The result is the upper bound of the bucket the
+   * percentile falls in, capped at the recorded maximum.
+   *
+   * @param percentile the percentile, between 0 and 100
+   * @return the value at the percentile, or 0 if nothing was recorded
+   */
+  public long getValueAtPercentile(double percentile) {
+    long count = totalCount.get();
+    if (count == 0) {
+      return 0;
+    }
+    long target = Math.max(1, (long) Math.ceil(Math.min(100, percentile) / 100 * count));
+    long seen = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      seen += counts.get(i);
+      if (seen >= target) {
+        return Math.min(upperBoundOf(i), getMax());
+      }
+    }
+    return getMax();
+  }
+
+  private static int indexOf(long value) {
+    if (value < EXACT_LIMIT) {
+      return (int) value;
+    }
+    int magnitude = 63 - Long.numberOfLeadingZeros(value);
+    int shift = magnitude - SUB_BUCKET_BITS;
+    int subBucket = (int) (value >>> shift) - SUB_BUCKET_COUNT;
+    return EXACT_LIMIT + (shift - 1) * SUB_BUCKET_COUNT + subBucket;
+  }
+
+  private static long upperBoundOf(int index) {
+    if (index < EXACT_LIMIT) {
+      return index;
+    }
+    int shift = (index - EXACT_LIMIT) / SUB_BUCKET_COUNT + 1;
+    long subBucket = (index - EXACT_LIMIT) % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+    return ((subBucket + 1) << shift) - 1;
+  }
+}
@@ -0,0 +1,98 @@
+package shared;
+
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded, lock-free ring buffer of log records with many producers and a single consumer.
+ * Slots are allocated once up front and reused, so enqueuing a record allocates nothing.
+ * Each slot carries a sequence number that tells producers and the consumer whose turn it is.
+ */
+class LogRingBuffer {
+
+  /**
+   * A reusable log record. Fields are written by a producer before it publishes the slot
+   * through {@code sequence}, and read by the consumer only after it observes that write.
+   */
+  static final class Slot {
+    volatile long sequence;
+    long timestamp;
+    PrintStream out;
+    String message;
+  }
+
+  private final Slot[] slots;
+  private final int mask;
+  private final AtomicLong head;
+  private long tail;
+
+  /**
+   * Constructs a LogRingBuffer holding at least the given number of records.
+   *
+   * @param capacity the minimum capacity, rounded up to a power of two
+   */
+  LogRingBuffer(int capacity) {
+    int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+    slots = new Slot[size];
+    for (int i = 0; i < size; i++) {
+      slots[i] = new Slot();
+      slots[i].sequence = i;
+    }
+    mask = size - 1;
+    head = new AtomicLong();
+  }
+
+  /**
+   * Enqueues a record. Safe to call from any thread.
+   *
+   * @param timestamp the time the record was created, in milliseconds
+   * @param out the stream the record is to be written to
+   * @param message the message of the record
+   * @return true if the record was enqueued, false if the buffer is full
+   */
+  boolean offer(long timestamp, PrintStream out, String message) {
+    long position = head.get();
+    Slot slot;
+    while (true) {
+      slot = slots[(int) (position & mask)];
+      long difference = slot.sequence - position;
+      if (difference == 0) {
+        if (head.compareAndSet(position, position + 1)) {
+          break;
+        }
+        position = head.get();
+      } else if (difference < 0) {
+        return false;
+      } else {
+        position = head.get();
+      }
+    }
+    slot.timestamp = timestamp;
+    slot.out = out;
+    slot.message = message;
+    slot.sequence = position + 1;
+    return true;
+  }
+
+  /**
+   * Returns the next published record without removing it. Must only be called by the consumer.
+   *
+   * @return the next record, or null if the buffer is empty
+   */
+  Slot peek() {
+    Slot slot = slots[(int) (tail & mask)];
+    return slot.sequence == tail + 1 ? slot : null;
+  }
+
+  /**
+   * Releases the record returned by {@link #peek()} so producers can reuse its slot.
+   * Must only be called by the consumer.
+   */
+  void release() {
+    Slot slot = slots[(int) (tail & mask)];
+    slot.message = null;
+    slot.out = null;
+    slot.sequence = tail + slots.length;
+    tail++;
+  }
+}
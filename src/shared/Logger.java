@@ -1,38 +1,248 @@
 package shared;
 
 import java.io.PrintStream;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
 
 /**
  * Logger is a simple utility class for logging messages to a specified output stream.
- * Each message is prefixed with the current system time in milliseconds.
+ * Each message is prefixed with the current system time, formatted to the millisecond.
+ * Messages below the configured level are discarded; the {@link Supplier} overloads build
+ * the message only when its level is enabled, so disabled levels cost close to nothing.
+ * An asynchronous logger hands messages to a lock-free ring buffer that a background thread
+ * drains, so logging threads never block on the output stream. The background thread sleeps
+ * while the buffer is empty and the first message queued after that wakes it.
  */
 public class Logger {
+
+  /**
+   * The severity of a log message.
+   */
+  public enum Level {
+    DEBUG,
+    INFO,
+    WARN,
+    ERROR
+  }
+
+  private static final int BUFFER_CAPACITY = 8192;
+  private static final long SHUTDOWN_WAIT = 2000;
+
+  private static volatile Level threshold = parseLevel(System.getProperty("log.level"));
+  private static final TimestampFormatter timestampFormatter = new TimestampFormatter();
+  private static final LogRingBuffer buffer = new LogRingBuffer(BUFFER_CAPACITY);
+  private static final AtomicLong droppedCount = new AtomicLong();
+  private static final AtomicBoolean flusherIdle = new AtomicBoolean();
+  private static volatile boolean closing;
+  private static volatile Thread flusherThread;
+
   private final PrintStream outputStream;
+  private final boolean async;
+  private final String prefix;
 
   /**
-   * Constructs a Logger that logs messages to the specified PrintStream.
+   * Constructs a Logger that synchronously logs messages to the specified PrintStream.
    *
    * @param out the PrintStream to which log messages will be written
    */
   public Logger(PrintStream out) {
+    this(out, false);
+  }
+
+  /**
+   * Constructs a Logger that logs messages to the specified PrintStream.
+   * An asynchronous logger returns as soon as the message is queued; if the queue is full
+   * the message is dropped and the number of dropped messages is reported later.
+   *
+   * @param out the PrintStream to which log messages will be written
+   * @param async true to write messages from a background thread, false to write them immediately
+   */
+  public Logger(PrintStream out, boolean async) {
+    this(out, async, "");
+  }
+
+  /**
+   * Constructs a Logger that puts the given prefix in front of every message it logs. The prefix
+   * is added only to messages that are logged, so callers need not build it for disabled levels.
+   *
+   * @param out the PrintStream to which log messages will be written
+   * @param async true to write messages from a background thread, false to write them immediately
+   * @param prefix the text put in front of every message
+   */
+  public Logger(PrintStream out, boolean async, String prefix) {
     this.outputStream = out;
+    this.async = async;
+    this.prefix = prefix;
+    if (async) {
+      startFlusher();
+    }
   }
 
   /**
-   * Logs a message to the output stream. The message is prefixed with the current system time in milliseconds.
+   * Logs a message at {@link Level#INFO}.
    *
    * @param message the message to log
    */
   public void log(String message) {
-    outputStream.println(getCurrentTimeFormatted() + ":" + message);
+    log(Level.INFO, message);
+  }
+
+  /**
+   * Logs a message at the given level.
+   *
+   * @param level the level of the message
+   * @param message the message to log
+   */
+  public void log(Level level, String message) {
+    if (isEnabled(level)) {
+      write(message);
+    }
+  }
+
+  /**
+   * Logs a message at {@link Level#DEBUG}, building it only if debug logging is enabled.
+   *
+   * @param message supplies the message to log
+   */
+  public void debug(Supplier<String> message) {
+    if (isEnabled(Level.DEBUG)) {
+      write(message.get());
+    }
   }
 
-  private String getCurrentTimeFormatted() {
-    SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
-    long currentTimeMillis = System.currentTimeMillis();
-    Date resultDate = new Date(currentTimeMillis);
-    return sdf.format(resultDate);
+  /**
+   * Logs a message at {@link Level#INFO}, building it only if info logging is enabled.
+   *
+   * @param message supplies the message to log
+   */
+  public void info(Supplier<String> message) {
+    if (isEnabled(Level.INFO)) {
+      write(message.get());
+    }
+  }
+
+  /**
+   * Logs a message at {@link Level#WARN}, building it only if warn logging is enabled.
+   *
+   * @param message supplies the message to log
+   */
+  public void warn(Supplier<String> message) {
+    if (isEnabled(Level.WARN)) {
+      write(message.get());
+    }
+  }
+
+  /**
+   * Checks if messages of the given level are logged.
+   *
+   * @param level the level to check
+   * @return true if messages of the level are logged, false otherwise
+   */
+  public static boolean isEnabled(Level level) {
+    return level.compareTo(threshold) >= 0;
+  }
+
+  /**
+   * Sets the minimum level of the messages logged by every logger.
+   * The initial level is read from the {@code log.level} system property and defaults to INFO.
+   *
+   * @param level the minimum level to log
+   */
+  public static void setLevel(Level level) {
+    threshold = level;
+  }
+
+  private void write(String message) {
+    if (!prefix.isEmpty()) {
+      message = prefix + message;
+    }
+    long timestamp = System.currentTimeMillis();
+    if (async) {
+      if (!buffer.offer(timestamp, outputStream, message)) {
+        droppedCount.incrementAndGet();
+      } else if (flusherIdle.compareAndSet(true, false)) {
+        LockSupport.unpark(flusherThread);
+      }
+    } else {
+      outputStream.println(format(timestamp, message, new StringBuilder()));
+    }
+  }
+
+  private static String format(long timestamp, String message, StringBuilder builder) {
+    timestampFormatter.appendTo(timestamp, builder);
+    return builder.append(':').append(message).toString();
+  }
+
+  private static Level parseLevel(String level) {
+    if (level == null) {
+      return Level.INFO;
+    }
+    try {
+      return Level.valueOf(level.trim().toUpperCase());
+    } catch (IllegalArgumentException e) {
+      return Level.INFO;
+    }
+  }
+
+  /**
+   * Starts the background thread draining the ring buffer, once per JVM.
+   * A shutdown hook lets it drain whatever is still queued when the JVM exits.
+   */
+  private static synchronized void startFlusher() {
+    if (flusherThread != null) {
+      return;
+    }
+    flusherThread = new Thread(Logger::drain, "logger-flusher");
+    flusherThread.setDaemon(true);
+    flusherThread.start();
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+      closing = true;
+      LockSupport.unpark(flusherThread);
+      try {
+        flusherThread.join(SHUTDOWN_WAIT);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }));
+  }
+
+  /**
+   * Writes queued records to their streams until the JVM shuts down and the buffer is empty.
+   * When the buffer runs empty the thread marks itself idle and parks until a producer or the
+   * shutdown hook unparks it. It looks at the buffer once more after marking itself idle, so
+   * a record queued just before a producer could see the mark is not left waiting.
+   */
+  private static void drain() {
+    StringBuilder builder = new StringBuilder(256);
+    PrintStream lastStream = null;
+    while (true) {
+      LogRingBuffer.Slot slot = buffer.peek();
+      if (slot == null) {
+        if (lastStream != null) {
+          lastStream.flush();
+          lastStream = null;
+        }
+        long dropped = droppedCount.getAndSet(0);
+        if (dropped > 0) {
+          System.err.println(format(System.currentTimeMillis(), dropped + " log messages dropped", builder));
+          builder.setLength(0);
+        }
+        if (closing) {
+          return;
+        }
+        flusherIdle.set(true);
+        if (buffer.peek() == null && !closing) {
+          LockSupport.park();
+        }
+        flusherIdle.set(false);
+        continue;
+      }
+      builder.setLength(0);
+      lastStream = slot.out;
+      lastStream.println(format(slot.timestamp, slot.message, builder));
+      buffer.release();
+    }
   }
 }
@@ -0,0 +1,55 @@
+package shared;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Formats millisecond timestamps as {@code yyyy-MM-dd HH:mm:ss.SSS} in the system time zone.
+ * The part up to the seconds is formatted once per second and cached, so formatting a
+ * timestamp is normally just appending a cached prefix and three digits.
+ */
+class TimestampFormatter {
+
+  private static final DateTimeFormatter SECOND_FORMAT =
+          DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.").withZone(ZoneId.systemDefault());
+
+  /**
+   * The formatted prefix of one second, replaced as a whole so readers never see a torn value.
+   */
+  private static final class CachedSecond {
+    final long second;
+    final String prefix;
+
+    CachedSecond(long second, String prefix) {
+      this.second = second;
+      this.prefix = prefix;
+    }
+  }
+
+  private volatile CachedSecond cached = new CachedSecond(Long.MIN_VALUE, "");
+
+  /**
+   * Appends the formatted timestamp to the builder. Safe to call from any thread.
+   *
+   * @param timestamp the time in milliseconds since the epoch
+   * @param builder the builder to append to
+   */
+  void appendTo(long timestamp, StringBuilder builder) {
+    long second = Math.floorDiv(timestamp, 1000);
+    CachedSecond current = cached;
+    if (current.second != second) {
+      current = new CachedSecond(second, SECOND_FORMAT.format(Instant.ofEpochSecond(second)));
+      cached = current;
+    }
+    int millis = Math.floorMod(timestamp, 1000);
+    builder.append(current.prefix);
+    if (millis < 100) {
+      builder.append('0');
+    }
+    if (millis < 10) {
+      builder.append('0');
+    }
+    builder.append(millis);
+  }
+}
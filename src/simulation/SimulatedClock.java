@@ -0,0 +1,40 @@
+package simulation;
+
+import java.util.function.LongSupplier;
+
+/**
+ * A virtual clock measured in microseconds. Time only moves when the simulation advances it,
+ * either to the time of the next event or by the delay of a simulated message.
+ */
+public class SimulatedClock implements LongSupplier {
+
+  private long now;
+
+  /**
+   * Returns the current virtual time.
+   *
+   * @return the current time in microseconds
+   */
+  @Override
+  public long getAsLong() {
+    return now;
+  }
+
+  /**
+   * Moves the clock forward by the given duration.
+   *
+   * @param micros the duration in microseconds
+   */
+  public void advance(long micros) {
+    now += micros;
+  }
+
+  /**
+   * Moves the clock forward to the given time. The clock never moves backwards.
+   *
+   * @param micros the time in microseconds
+   */
+  public void advanceTo(long micros) {
+    now = Math.max(now, micros);
+  }
+}
@@ -0,0 +1,153 @@
+package simulation;
+
+import java.rmi.RemoteException;
+import java.util.Random;
+
+/**
+ * Simulates the network between replicas. Every message advances the virtual clock by a
+ * random delay, and is lost if it is dropped at random, crosses a partition, or involves a
+ * crashed replica. A lost message costs the sender a timeout before it sees a RemoteException,
+ * as an RMI call to an unreachable host would.
+ */
+public class SimulatedNetwork {
+
+  private final SimulatedClock clock;
+  private final Random random;
+  private double dropRate;
+  private final long minDelayMicros;
+  private final long meanJitterMicros;
+  private final long timeoutMicros;
+  private final boolean[] crashed;
+  private final int[] partition;
+  private long sentCount;
+  private long lostCount;
+
+  /**
+   * Constructs a fully connected SimulatedNetwork between the given number of replicas.
+   *
+   * @param replicas the number of replicas
+   * @param clock the virtual clock advanced by message delays
+   * @param random the seeded random generator of the simulation
+   * @param dropRate the probability that a message is dropped
+   * @param minDelayMicros the minimum delay of a message
+   * @param meanJitterMicros the mean of the exponentially distributed delay added to the minimum
+   * @param timeoutMicros the time a sender waits before giving up on a lost message
+   */
+  public SimulatedNetwork(int replicas, SimulatedClock clock, Random random, double dropRate, long minDelayMicros,
+                          long meanJitterMicros, long timeoutMicros) {
+    this.clock = clock;
+    this.random = random;
+    this.dropRate = dropRate;
+    this.minDelayMicros = minDelayMicros;
+    this.meanJitterMicros = meanJitterMicros;
+    this.timeoutMicros = timeoutMicros;
+    this.crashed = new boolean[replicas];
+    this.partition = new int[replicas];
+  }
+
+  /**
+   * Sets the probability that a message is dropped at random.
+   *
+   * @param dropRate the new drop probability
+   */
+  public void setDropRate(double dropRate) {
+    this.dropRate = dropRate;
+  }
+
+  /**
+   * Delivers a message from one replica to another, advancing the clock by its delay.
+   * Messages a replica sends to itself are delivered instantly.
+   *
+   * @param from the sending replica
+   * @param to the receiving replica
+   * @throws RemoteException if the message is lost
+   */
+  public void transmit(int from, int to) throws RemoteException {
+    if (from == to) {
+      return;
+    }
+    if (isLost(from, to)) {
+      clock.advance(timeoutMicros);
+      throw new RemoteException("Message from replica " + from + " to replica " + to + " lost");
+    }
+    clock.advance(minDelayMicros + (long) (-Math.log(1 - random.nextDouble()) * meanJitterMicros));
+  }
+
+  /**
+   * Sends a one-way message, such as a heartbeat, that the sender does not wait on. It is lost
+   * under the same conditions as any other message but does not advance the clock.
+   *
+   * @param from the sending replica
+   * @param to the receiving replica
+   * @return true if the message arrived, false if it was lost
+   */
+  public boolean deliver(int from, int to) {
+    return from == to || !isLost(from, to);
+  }
+
+  private boolean isLost(int from, int to) {
+    sentCount++;
+    if (crashed[from] || crashed[to] || partition[from] != partition[to] || random.nextDouble() < dropRate) {
+      lostCount++;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Crashes or recovers a replica. A crashed replica neither sends nor receives messages.
+   *
+   * @param replica the replica
+   * @param down true to crash the replica, false to recover it
+   */
+  public void setCrashed(int replica, boolean down) {
+    crashed[replica] = down;
+  }
+
+  /**
+   * Checks if a replica is crashed.
+   *
+   * @param replica the replica
+   * @return true if the replica is crashed, false otherwise
+   */
+  public boolean isCrashed(int replica) {
+    return crashed[replica];
+  }
+
+  /**
+   * Places a replica on one side of a partition. Replicas on different sides cannot communicate.
+   *
+   * @param replica the replica
+   * @param side the side of the partition
+   */
+  public void setPartition(int replica, int side) {
+    partition[replica] = side;
+  }
+
+  /**
+   * Removes every partition.
+   */
+  public void heal() {
+    for (int i = 0; i < partition.length; i++) {
+      partition[i] = 0;
+    }
+  }
+
+  /**
+   * Returns the number of messages sent between distinct replicas.
+   *
+   * @return the sent message count
+   */
+  public long getSentCount() {
+    return sentCount;
+  }
+
+  /**
+   * Returns the number of messages lost.
+   *
+   * @return the lost message count
+   */
+  public long getLostCount() {
+    return lostCount;
+  }
+}
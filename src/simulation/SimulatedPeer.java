@@ -0,0 +1,186 @@
+package simulation;
+
+import java.rmi.RemoteException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+
+import server.AcceptMessage;
+import server.BinaryValue;
+import server.Command;
+import server.PaxosServer;
+import server.PaxosServerImpl;
+import server.PreparePromise;
+import server.Server;
+import server.TransactionCommand;
+import server.VersionedValue;
+import server.WatchListener;
+
+/**
+ * The view one replica has of another inside the simulation. Every Paxos call made through it
+ * crosses the {@link SimulatedNetwork} twice, once for the request and once for the reply, so a
+ * call can be delayed, or lost before or after the target has acted on it. Heartbeats are one-way
+ * messages that can be lost but cost no time, and writes forwarded to the leader cross the network
+ * like Paxos calls. Reads and other client-facing operations go straight to the target.
+ */
+public class SimulatedPeer implements PaxosServer {
+
+  private final int from;
+  private final int to;
+  private final PaxosServerImpl target;
+  private final SimulatedNetwork network;
+  private final Simulation simulation;
+
+  /**
+   * Constructs a SimulatedPeer through which replica {@code from} reaches replica {@code to}.
+   *
+   * @param from the calling replica
+   * @param to the called replica
+   * @param target the server of the called replica
+   * @param network the simulated network
+   * @param simulation the simulation, notified of every value learned
+   */
+  public SimulatedPeer(int from, int to, PaxosServerImpl target, SimulatedNetwork network, Simulation simulation) {
+    this.from = from;
+    this.to = to;
+    this.target = target;
+    this.network = network;
+    this.simulation = simulation;
+  }
+
+  @Override
+  public PreparePromise prepare(long prepareId) throws RemoteException {
+    network.transmit(from, to);
+    PreparePromise promise = target.prepare(prepareId);
+    network.transmit(to, from);
+    return promise;
+  }
+
+  @Override
+  public AcceptMessage accept(long id, Consumer<Map<String, String>> mapConsumer) throws RemoteException {
+    network.transmit(from, to);
+    AcceptMessage message = target.accept(id, mapConsumer);
+    network.transmit(to, from);
+    return message;
+  }
+
+  @Override
+  public void updateLearner(AcceptMessage message) throws RemoteException {
+    network.transmit(from, to);
+    simulation.onLearn(to, message);
+    target.updateLearner(message);
+    network.transmit(to, from);
+  }
+
+  @Override
+  public void updateConnectedServers(List<PaxosServer> servers) {
+    target.updateConnectedServers(servers);
+  }
+
+  @Override
+  public int getPort() {
+    return target.getPort();
+  }
+
+  @Override
+  public long getAppliedIndex() {
+    return target.getAppliedIndex();
+  }
+
+  @Override
+  public boolean heartbeat() throws RemoteException {
+    if (!network.deliver(from, to) || !network.deliver(to, from)) {
+      throw new RemoteException("Heartbeat from replica " + from + " to replica " + to + " lost");
+    }
+    return target.heartbeat();
+  }
+
+  @Override
+  public String get(String key) throws RemoteException, ExecutionException, InterruptedException {
+    return target.get(key);
+  }
+
+  @Override
+  public String put(String key, String value) throws RemoteException, ExecutionException, InterruptedException {
+    network.transmit(from, to);
+    String response = target.put(key, value);
+    network.transmit(to, from);
+    return response;
+  }
+
+  @Override
+  public String delete(String key) throws RemoteException, ExecutionException, InterruptedException {
+    network.transmit(from, to);
+    String response = target.delete(key);
+    network.transmit(to, from);
+    return response;
+  }
+
+  @Override
+  public String putBinary(String key, BinaryValue value)
+          throws RemoteException, ExecutionException, InterruptedException {
+    network.transmit(from, to);
+    String response = target.putBinary(key, value);
+    network.transmit(to, from);
+    return response;
+  }
+
+  @Override
+  public BinaryValue getBinary(String key) throws RemoteException {
+    return target.getBinary(key);
+  }
+
+  @Override
+  public String putAll(Map<String, String> entries)
+          throws RemoteException, ExecutionException, InterruptedException {
+    network.transmit(from, to);
+    String response = target.putAll(entries);
+    network.transmit(to, from);
+    return response;
+  }
+
+  @Override
+  public long openExport() {
+    return target.openExport();
+  }
+
+  @Override
+  public List<Command> exportChunk(long exportId, int maxEntries) {
+    return target.exportChunk(exportId, maxEntries);
+  }
+
+  @Override
+  public List<Command> finishExport(long exportId) {
+    return target.finishExport(exportId);
+  }
+
+  @Override
+  public VersionedValue getVersioned(String key) throws RemoteException {
+    return target.getVersioned(key);
+  }
+
+  @Override
+  public String commit(TransactionCommand transaction)
+          throws RemoteException, ExecutionException, InterruptedException {
+    network.transmit(from, to);
+    String response = target.commit(transaction);
+    network.transmit(to, from);
+    return response;
+  }
+
+  @Override
+  public long watch(String keyOrPrefix, long fromIndex, WatchListener listener) {
+    return target.watch(keyOrPrefix, fromIndex, listener);
+  }
+
+  @Override
+  public void unwatch(long subscriptionId) {
+    target.unwatch(subscriptionId);
+  }
+
+  @Override
+  public Server namespace(String name) throws RemoteException {
+    return target.namespace(name);
+  }
+}
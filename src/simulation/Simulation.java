@@ -0,0 +1,340 @@
+package simulation;
+
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import server.AcceptMessage;
+import server.PaxosServer;
+import server.PaxosServerImpl;
+import shared.LatencyHistogram;
+
+/**
+ * A seeded, discrete-event simulation of a cluster of {@link PaxosServerImpl} replicas running
+ * in one thread on a virtual clock. Client requests arrive as a Poisson process and are handled
+ * one at a time; replicas talk through a {@link SimulatedNetwork} that delays and drops messages,
+ * while scheduled events crash and recover replicas and partition and heal the network.
+ * <p>
+ * Everything random is drawn from one generator seeded with the simulation's seed, and proposal
+ * ids come from the virtual clock, so a run with the same seed and options replays exactly.
+ * <p>
+ * The simulation checks that no two replicas learn different commands for the same proposal id,
+ * and after healing the network it reports the keys whose values differ between replicas. An
+ * optional settling phase first stops every fault and rewrites each key in turn, after which
+ * replicas that only missed writes while faulty must agree again.
+ */
+public class Simulation {
+
+  /**
+   * A scheduled action, ordered by virtual time and then by the order it was scheduled in.
+   */
+  private static final class Event implements Comparable<Event> {
+    final long time;
+    final long sequence;
+    final Runnable action;
+
+    Event(long time, long sequence, Runnable action) {
+      this.time = time;
+      this.sequence = sequence;
+      this.action = action;
+    }
+
+    @Override
+    public int compareTo(Event other) {
+      int byTime = Long.compare(time, other.time);
+      return byTime != 0 ? byTime : Long.compare(sequence, other.sequence);
+    }
+  }
+
+  private static final long SECOND = TimeUnit.SECONDS.toMicros(1);
+
+  private final SimulationOptions options;
+  private final long seed;
+  private final Random random;
+  private final SimulatedClock clock;
+  private final SimulatedNetwork network;
+  private final List<PaxosServerImpl> replicas;
+  private final PriorityQueue<Event> events;
+  private final Map<Long, Consumer<Map<String, String>>> learned;
+  private final LatencyHistogram readLatencies;
+  private final LatencyHistogram writeLatencies;
+  private long nextSequence;
+  private long eventTime;
+  private long reads;
+  private long writes;
+  private long failedWrites;
+  private long crashes;
+  private long partitions;
+  private long violations;
+  private String firstViolation;
+  private int divergentKeys;
+  private boolean settling;
+  private int nextSettledKey;
+
+  /**
+   * Constructs a Simulation with the given options and seed.
+   *
+   * @param options the options of the simulation
+   * @param seed the seed of every random choice made during the run
+   */
+  public Simulation(SimulationOptions options, long seed) {
+    this.options = options;
+    this.seed = seed;
+    this.random = new Random(seed);
+    this.clock = new SimulatedClock();
+    this.network = new SimulatedNetwork(options.replicas, clock, random, options.dropRate,
+            options.minDelayMicros, options.meanJitterMicros, options.timeoutMicros);
+    this.replicas = new ArrayList<>();
+    this.events = new PriorityQueue<>();
+    this.learned = new HashMap<>();
+    this.readLatencies = new LatencyHistogram();
+    this.writeLatencies = new LatencyHistogram();
+  }
+
+  /**
+   * Runs the simulation to the end of its virtual duration.
+   *
+   * @return true if no safety violation was found, false otherwise
+   */
+  public boolean run() {
+    for (int i = 0; i < options.replicas; i++) {
+      int replica = i;
+      replicas.add(new PaxosServerImpl(i, clock, Math.max(1, options.heartbeatIntervalMicros),
+              () -> !network.isCrashed(replica), options.quorumConfig));
+    }
+    for (int i = 0; i < options.replicas; i++) {
+      List<PaxosServer> peers = new ArrayList<>();
+      for (int j = 0; j < options.replicas; j++) {
+        peers.add(new SimulatedPeer(i, j, replicas.get(j), network, this));
+      }
+      replicas.get(i).updateConnectedServers(peers);
+    }
+
+    long end = options.durationSeconds * SECOND;
+    schedule(exponential(SECOND / options.rate), this::clientRequest);
+    if (options.heartbeatIntervalMicros > 0) {
+      schedule(options.heartbeatIntervalMicros, this::heartbeats);
+    }
+    if (options.crashIntervalSeconds > 0) {
+      schedule(exponential(options.crashIntervalSeconds * SECOND), this::crash);
+    }
+    if (options.partitionIntervalSeconds > 0) {
+      schedule(exponential(options.partitionIntervalSeconds * SECOND), this::partition);
+    }
+    runUntil(end);
+
+    for (int i = 0; i < options.replicas; i++) {
+      network.setCrashed(i, false);
+    }
+    network.heal();
+    if (options.settleSeconds > 0) {
+      settling = true;
+      network.setDropRate(0);
+      runUntil(end + options.settleSeconds * SECOND);
+    }
+    try {
+      divergentKeys = countDivergentKeys();
+    } catch (RemoteException e) {
+      throw new IllegalStateException("Local read failed", e);
+    }
+    return violations == 0 && (!options.strict || divergentKeys == 0);
+  }
+
+  private void runUntil(long time) {
+    while (!events.isEmpty() && events.peek().time <= time) {
+      Event event = events.poll();
+      eventTime = event.time;
+      clock.advanceTo(event.time);
+      event.action.run();
+    }
+  }
+
+  /**
+   * Records a command delivered to a learner and checks it against what other learners got
+   * for the same proposal id.
+   *
+   * @param replica the learning replica
+   * @param message the learned proposal
+   */
+  void onLearn(int replica, AcceptMessage message) {
+    Consumer<Map<String, String>> previous = learned.putIfAbsent(message.getId(), message.getConsumer());
+    if (previous != null && !previous.equals(message.getConsumer())) {
+      violations++;
+      if (firstViolation == null) {
+        firstViolation = "replica " + replica + " learned a different command for proposal " + message.getId()
+                + " at t=" + clock.getAsLong() + "us";
+      }
+    }
+  }
+
+  /**
+   * Sends a client request to a random live replica. Requests are handled one at a time, so a
+   * request arriving while the previous one is in flight waits, and its latency includes the wait.
+   * While settling, every request writes the next key in turn.
+   */
+  private void clientRequest() {
+    long arrival = eventTime;
+    schedule(arrival + exponential(SECOND / options.rate), this::clientRequest);
+    List<Integer> live = new ArrayList<>();
+    for (int i = 0; i < options.replicas; i++) {
+      if (!network.isCrashed(i)) {
+        live.add(i);
+      }
+    }
+    if (live.isEmpty()) {
+      return;
+    }
+    PaxosServerImpl replica = replicas.get(live.get(random.nextInt(live.size())));
+    String key = "key" + (settling ? nextSettledKey++ % options.keys : random.nextInt(options.keys));
+    try {
+      if (!settling && random.nextDouble() < options.readProportion) {
+        replica.get(key);
+        reads++;
+        readLatencies.record(clock.getAsLong() - arrival);
+      } else {
+        String response = replica.put(key, "value" + clock.getAsLong());
+        writes++;
+        if (response.contains("Please try again")) {
+          failedWrites++;
+        }
+        writeLatencies.record(clock.getAsLong() - arrival);
+      }
+    } catch (RemoteException | ExecutionException | InterruptedException e) {
+      failedWrites++;
+    }
+  }
+
+  /**
+   * Has every live replica send its heartbeats, and schedules the next round.
+   */
+  private void heartbeats() {
+    schedule(eventTime + options.heartbeatIntervalMicros, this::heartbeats);
+    for (int i = 0; i < options.replicas; i++) {
+      if (!network.isCrashed(i)) {
+        replicas.get(i).sendHeartbeats();
+      }
+    }
+  }
+
+  private void crash() {
+    if (settling) {
+      return;
+    }
+    schedule(eventTime + exponential(options.crashIntervalSeconds * SECOND), this::crash);
+    List<Integer> live = new ArrayList<>();
+    for (int i = 0; i < options.replicas; i++) {
+      if (!network.isCrashed(i)) {
+        live.add(i);
+      }
+    }
+    if (options.replicas - live.size() >= options.maxCrashed) {
+      return;
+    }
+    int replica = live.get(random.nextInt(live.size()));
+    network.setCrashed(replica, true);
+    crashes++;
+    schedule(clock.getAsLong() + exponential(options.crashDurationSeconds * SECOND),
+            () -> network.setCrashed(replica, false));
+  }
+
+  private void partition() {
+    if (settling) {
+      return;
+    }
+    schedule(eventTime + exponential(options.partitionIntervalSeconds * SECOND), this::partition);
+    int minority = 1 + random.nextInt(Math.max(1, (options.replicas - 1) / 2));
+    for (int i = 0; i < options.replicas; i++) {
+      network.setPartition(i, 0);
+    }
+    for (int i = 0; i < minority; i++) {
+      network.setPartition(random.nextInt(options.replicas), 1);
+    }
+    partitions++;
+    schedule(clock.getAsLong() + exponential(options.partitionDurationSeconds * SECOND), network::heal);
+  }
+
+  /**
+   * Counts the keys whose values differ between the replicas that store values.
+   */
+  private int countDivergentKeys() throws RemoteException {
+    int divergent = 0;
+    int storing = options.replicas - options.witnesses;
+    for (int k = 0; k < options.keys; k++) {
+      String key = "key" + k;
+      String expected = null;
+      for (int i = 0; i < storing; i++) {
+        String value = replicas.get(i).getVersioned(key).getValue();
+        if (i == 0) {
+          expected = value;
+        } else if (!Objects.equals(expected, value)) {
+          divergent++;
+          break;
+        }
+      }
+    }
+    return divergent;
+  }
+
+  private void schedule(long time, Runnable action) {
+    events.add(new Event(time, nextSequence++, action));
+  }
+
+  private long exponential(long mean) {
+    return Math.max(1, (long) (-Math.log(1 - random.nextDouble()) * mean));
+  }
+
+  /**
+   * Returns the number of keys whose values differed between replicas at the end of the run.
+   *
+   * @return the divergent key count, 0 before the run ends
+   */
+  public int getDivergentKeys() {
+    return divergentKeys;
+  }
+
+  /**
+   * Returns a one-line summary of the run.
+   *
+   * @return the summary
+   */
+  public String summary() {
+    return String.format("seed=%d requests=%d (reads=%d writes=%d failedWrites=%d) messages=%d lost=%d "
+                    + "crashes=%d partitions=%d violations=%d divergentKeys=%d",
+            seed, reads + writes, reads, writes, failedWrites, network.getSentCount(), network.getLostCount(),
+            crashes, partitions, violations, divergentKeys);
+  }
+
+  /**
+   * Returns a detailed report of the run, including virtual latency percentiles.
+   *
+   * @return the report
+   */
+  public String report() {
+    StringBuilder report = new StringBuilder(summary()).append('\n');
+    report.append(String.format("Virtual throughput : %.1f requests/s%n",
+            (double) (reads + writes) / options.durationSeconds));
+    appendLatencies(report, "Reads ", readLatencies);
+    appendLatencies(report, "Writes", writeLatencies);
+    if (firstViolation != null) {
+      report.append("First violation    : ").append(firstViolation).append('\n');
+    }
+    return report.toString();
+  }
+
+  private static void appendLatencies(StringBuilder report, String name, LatencyHistogram histogram) {
+    if (histogram.getCount() == 0) {
+      return;
+    }
+    report.append(String.format("%s latency (ms)  : p50=%.3f p99=%.3f p99.9=%.3f max=%.3f%n", name,
+            histogram.getValueAtPercentile(50) / 1e3, histogram.getValueAtPercentile(99) / 1e3,
+            histogram.getValueAtPercentile(99.9) / 1e3, histogram.getMax() / 1e3));
+  }
+}
@@ -0,0 +1,57 @@
+package simulation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import shared.Logger;
+
+/**
+ * SimulationApp is the entry point for running deterministic cluster simulations.
+ * It runs one simulation per seed and lists the seeds that failed, each of which can be
+ * replayed exactly by running again with {@code seed=<seed> seeds=1}.
+ */
+public class SimulationApp {
+
+  /**
+   * The main method parses the options, runs the simulations and prints their results.
+   * Besides the {@link SimulationOptions}, it accepts {@code seed} (first seed, default 1) and
+   * {@code seeds} (number of consecutive seeds to run, default 1).
+   *
+   * @param args command-line options as {@code name=value} pairs
+   */
+  public static void main(String[] args) {
+    Logger.setLevel(Logger.Level.WARN);
+    SimulationOptions options;
+    long firstSeed;
+    int seedCount;
+    try {
+      Map<String, String> values = SimulationOptions.parse(args);
+      firstSeed = Long.parseLong(values.getOrDefault("seed", "1"));
+      seedCount = Integer.parseInt(values.getOrDefault("seeds", "1"));
+      values.remove("seed");
+      values.remove("seeds");
+      options = new SimulationOptions(values);
+    } catch (IllegalArgumentException e) {
+      System.out.println("Invalid simulation options. " + e.getMessage());
+      return;
+    }
+
+    List<Long> failedSeeds = new ArrayList<>();
+    long start = System.nanoTime();
+    for (long seed = firstSeed; seed < firstSeed + seedCount; seed++) {
+      Simulation simulation = new Simulation(options, seed);
+      boolean passed = simulation.run();
+      if (seedCount == 1) {
+        System.out.print(simulation.report());
+      } else {
+        System.out.println((passed ? "PASS " : "FAIL ") + simulation.summary());
+      }
+      if (!passed) {
+        failedSeeds.add(seed);
+      }
+    }
+    System.out.printf("Simulated %d x %ds in %.1fs real time. Failed seeds: %s%n", seedCount,
+            options.durationSeconds, (System.nanoTime() - start) / 1e9, failedSeeds);
+  }
+}
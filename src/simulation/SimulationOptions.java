@@ -0,0 +1,106 @@
+package simulation;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import server.QuorumConfig;
+
+/**
+ * The workload and fault options of a {@link Simulation}, parsed from {@code name=value} pairs.
+ * Durations are in virtual seconds and delays in virtual microseconds.
+ */
+public class SimulationOptions {
+
+  private static final List<String> KNOWN = Arrays.asList("replicas", "duration", "rate", "reads", "keys",
+          "dropRate", "minDelay", "jitter", "timeout", "heartbeatInterval", "crashInterval", "crashDuration", "maxCrashed",
+          "partitionInterval", "partitionDuration", "phase1Quorum", "phase2Quorum", "witnesses", "strict", "settle");
+
+  final int replicas;
+  final long durationSeconds;
+  final long rate;
+  final double readProportion;
+  final int keys;
+  final double dropRate;
+  final long minDelayMicros;
+  final long meanJitterMicros;
+  final long timeoutMicros;
+  final long heartbeatIntervalMicros;
+  final long crashIntervalSeconds;
+  final long crashDurationSeconds;
+  final int maxCrashed;
+  final long partitionIntervalSeconds;
+  final long partitionDurationSeconds;
+  final QuorumConfig quorumConfig;
+  final int witnesses;
+  final boolean strict;
+  final long settleSeconds;
+
+  /**
+   * Parses SimulationOptions from {@code name=value} pairs. Unlisted options keep their defaults:
+   * 5 replicas, 1000 virtual seconds at 5 requests/s, half reads over 100 keys, 1% message loss,
+   * 200-700us message delays, 50ms timeouts, heartbeats every 100ms, a crash every 60s lasting 10s with at most a minority
+   * down, a partition every 120s lasting 15s, majority quorums, no witnesses and no settling
+   * phase. Witnesses are the highest-numbered replicas.
+   *
+   * @param options the options as {@code name=value} pairs
+   * @throws IllegalArgumentException if an option is unknown or invalid
+   */
+  public SimulationOptions(Map<String, String> options) {
+    for (String name : options.keySet()) {
+      if (!KNOWN.contains(name)) {
+        throw new IllegalArgumentException("Unknown option: " + name);
+      }
+    }
+    replicas = Integer.parseInt(options.getOrDefault("replicas", "5"));
+    durationSeconds = Long.parseLong(options.getOrDefault("duration", "1000"));
+    rate = Long.parseLong(options.getOrDefault("rate", "5"));
+    readProportion = Double.parseDouble(options.getOrDefault("reads", "0.5"));
+    keys = Integer.parseInt(options.getOrDefault("keys", "100"));
+    dropRate = Double.parseDouble(options.getOrDefault("dropRate", "0.01"));
+    minDelayMicros = Long.parseLong(options.getOrDefault("minDelay", "200"));
+    meanJitterMicros = Long.parseLong(options.getOrDefault("jitter", "500"));
+    timeoutMicros = Long.parseLong(options.getOrDefault("timeout", "50000"));
+    heartbeatIntervalMicros = Long.parseLong(options.getOrDefault("heartbeatInterval", "100000"));
+    crashIntervalSeconds = Long.parseLong(options.getOrDefault("crashInterval", "60"));
+    crashDurationSeconds = Long.parseLong(options.getOrDefault("crashDuration", "10"));
+    maxCrashed = Integer.parseInt(options.getOrDefault("maxCrashed", String.valueOf((replicas - 1) / 2)));
+    partitionIntervalSeconds = Long.parseLong(options.getOrDefault("partitionInterval", "120"));
+    partitionDurationSeconds = Long.parseLong(options.getOrDefault("partitionDuration", "15"));
+    witnesses = Integer.parseInt(options.getOrDefault("witnesses", "0"));
+    Set<Integer> witnessReplicas = new HashSet<>();
+    for (int i = replicas - witnesses; i < replicas; i++) {
+      witnessReplicas.add(i);
+    }
+    quorumConfig = new QuorumConfig(Integer.parseInt(options.getOrDefault("phase1Quorum", "0")),
+            Integer.parseInt(options.getOrDefault("phase2Quorum", "0")), witnessReplicas);
+    quorumConfig.validate(replicas);
+    strict = Boolean.parseBoolean(options.getOrDefault("strict", "false"));
+    settleSeconds = Long.parseLong(options.getOrDefault("settle", "0"));
+    if (replicas <= 0 || durationSeconds <= 0 || rate <= 0 || rate > 1_000_000 || keys <= 0 || settleSeconds < 0) {
+      throw new IllegalArgumentException("replicas, duration, keys and rate must be positive, rate at most 1000000");
+    }
+  }
+
+  /**
+   * Parses {@code name=value} arguments into a map.
+   *
+   * @param args the arguments
+   * @return the options keyed by name
+   * @throws IllegalArgumentException if an argument is not of the form {@code name=value}
+   */
+  public static Map<String, String> parse(String[] args) {
+    Map<String, String> options = new HashMap<>();
+    for (String arg : args) {
+      String[] nameAndValue = arg.split("=", 2);
+      if (nameAndValue.length != 2) {
+        throw new IllegalArgumentException("Option must be name=value: " + arg);
+      }
+      options.put(nameAndValue[0], nameAndValue[1]);
+    }
+    return options;
+  }
+}
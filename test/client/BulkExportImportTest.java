@@ -0,0 +1,100 @@
+package client;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import server.BinaryValue;
+import server.PaxosServerImpl;
+import server.QuorumConfig;
+import shared.Logger;
+
+class BulkExportImportTest {
+
+  private final AtomicLong clock = new AtomicLong();
+
+  @TempDir
+  Path directory;
+
+  @BeforeAll
+  static void quietLogs() {
+    Logger.setLevel(Logger.Level.WARN);
+  }
+
+  @Test
+  void exportedBinaryValuesAreImportedBack() throws Exception {
+    PaxosServerImpl source = newReplica(0);
+    byte[] large = new byte[4096];
+    large[100] = 7;
+    source.put("text", "value");
+    source.putBinary("small", BinaryValue.of(new byte[] {1, 2, 3}));
+    source.putBinary("large", BinaryValue.of(large));
+    Path file = directory.resolve("store.jsonl");
+
+    new BulkExporter(source, file.toString(), new String[0]).run();
+    PaxosServerImpl target = newReplica(1);
+    new BulkImporter(target, file.toString(), new String[0]).run();
+
+    assertEquals(3, Files.readAllLines(file, StandardCharsets.UTF_8).size());
+    assertEquals("value", target.get("text"));
+    assertArrayEquals(new byte[] {1, 2, 3}, target.getBinary("small").toBytes());
+    assertArrayEquals(large, target.getBinary("large").toBytes());
+  }
+
+  @Test
+  void writesOverAQuotaAreReportedAsFailedWithoutRetrying() throws Exception {
+    System.setProperty("paxos.namespace.limited.maxKeys", "1");
+    PaxosServerImpl target;
+    try {
+      target = newReplica(0);
+    } finally {
+      System.clearProperty("paxos.namespace.limited.maxKeys");
+    }
+    Path file = directory.resolve("records.csv");
+    Files.write(file, Arrays.asList("a,1", "b,2", "c,3"), StandardCharsets.UTF_8);
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    PrintStream stdout = System.out;
+    System.setOut(new PrintStream(output, true));
+    try {
+      new BulkImporter(target, file.toString(), new String[] {"batchSize=1", "threads=1", "namespace=limited"}).run();
+    } finally {
+      System.setOut(stdout);
+    }
+
+    String report = output.toString();
+    assertTrue(report.contains("Records imported   : 1"), report);
+    assertTrue(report.contains("Records failed     : 2"), report);
+    assertFalse(report.contains("attempts"), report);
+    assertEquals("1", target.namespace("limited").get("a"));
+  }
+
+  @Test
+  void recordNeedsEitherAValueOrABinaryValue() {
+    assertThrows(IllegalArgumentException.class,
+            () -> JsonLines.parse("{\"key\":\"k\",\"value\":\"v\",\"binary\":\"AQ==\"}"));
+    assertThrows(IllegalArgumentException.class,
+            () -> JsonLines.parse("{\"key\":\"k\"}"));
+  }
+
+  private PaxosServerImpl newReplica(int port) {
+    PaxosServerImpl replica = new PaxosServerImpl(port, clock::incrementAndGet, 1, () -> true,
+            new QuorumConfig(0, 0, Collections.emptySet()));
+    replica.updateConnectedServers(Collections.singletonList(replica));
+    return replica;
+  }
+}
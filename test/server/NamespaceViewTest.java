@@ -0,0 +1,167 @@
+package server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.rmi.RemoteException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import shared.Logger;
+
+class NamespaceViewTest {
+
+  private final AtomicLong clock = new AtomicLong();
+
+  @BeforeAll
+  static void quietLogs() {
+    Logger.setLevel(Logger.Level.WARN);
+  }
+
+  @Test
+  void exportsOfOtherNamespacesAreRefused() throws Exception {
+    PaxosServerImpl store = newReplica();
+    NamespaceView tenant = new NamespaceView("tenant", store);
+    NamespaceView other = new NamespaceView("other", store);
+    store.put("other/secret", "value");
+    long otherExport = other.openExport();
+    long defaultExport = store.openExport();
+
+    assertThrows(IllegalArgumentException.class, () -> tenant.exportChunk(otherExport, 10));
+    assertThrows(IllegalArgumentException.class, () -> tenant.exportChunk(defaultExport, 10));
+    assertThrows(IllegalArgumentException.class, () -> tenant.finishExport(otherExport));
+
+    assertEquals("secret", other.exportChunk(otherExport, 10).get(0).getKey());
+    other.finishExport(otherExport);
+    assertThrows(IllegalArgumentException.class, () -> other.exportChunk(otherExport, 10));
+  }
+
+  @Test
+  void namespacesCanReuseATransactionId() throws Exception {
+    PaxosServerImpl store = newReplica();
+    NamespaceView tenant = new NamespaceView("tenant", store);
+    NamespaceView other = new NamespaceView("other", store);
+    tenant.put("key", "first");
+    long staleVersion = tenant.getVersioned("key").getVersion();
+    tenant.put("key", "second");
+
+    String aborted = tenant.commit(new TransactionCommand("tx", Collections.singletonMap("key", staleVersion),
+            Collections.singletonList(Command.put("key", "stale"))));
+    String committed = other.commit(new TransactionCommand("tx", Collections.singletonMap("key", 0L),
+            Collections.singletonList(Command.put("key", "fresh"))));
+
+    assertTrue(aborted.endsWith("aborted due to a conflicting write"), aborted);
+    assertTrue(committed.endsWith("committed successfully"), committed);
+    assertEquals("fresh", other.get("key"));
+  }
+
+  @Test
+  void watchesOfOtherNamespacesCannotBeCancelled() throws Exception {
+    PaxosServerImpl store = newReplica();
+    NamespaceView tenant = new NamespaceView("tenant", store);
+    NamespaceView other = new NamespaceView("other", store);
+    long subscription = other.watch("", 1, new WatchListener() {
+      @Override
+      public void onEvents(List<ChangeEvent> events) {
+      }
+
+      @Override
+      public void onTruncated(long oldestIndex) {
+      }
+    });
+
+    assertThrows(IllegalArgumentException.class, () -> tenant.unwatch(subscription));
+    other.unwatch(subscription);
+    assertThrows(IllegalArgumentException.class, () -> other.unwatch(subscription));
+  }
+
+  @Test
+  void exportReadsOnlyTheKeysOfItsNamespace() throws Exception {
+    PaxosServerImpl store = newReplica();
+    NamespaceView tenant = new NamespaceView("tenant", store);
+    for (int i = 0; i < 100; i++) {
+      store.put("plain" + i, "value");
+    }
+    store.put("other/key", "value");
+    tenant.put("key", "value");
+    tenant.put("gone", "value");
+    tenant.delete("gone");
+    long export = tenant.openExport();
+
+    List<Command> chunk = store.exportChunk(export, 1000);
+
+    assertEquals(1, chunk.size());
+    assertEquals("tenant/key", chunk.get(0).getKey());
+    tenant.put("later", "value");
+    store.put("plain0", "changed");
+    List<Command> corrections = tenant.finishExport(export);
+    assertEquals(1, corrections.size());
+    assertEquals("later", corrections.get(0).getKey());
+  }
+
+  @Test
+  void watchThatEndsOnTheServerIsForgotten() throws Exception {
+    PaxosServerImpl store = newReplica();
+    NamespaceView tenant = new NamespaceView("tenant", store);
+    CountDownLatch delivered = new CountDownLatch(1);
+    long subscription = tenant.watch("", -1, new WatchListener() {
+      @Override
+      public void onEvents(List<ChangeEvent> events) throws RemoteException {
+        delivered.countDown();
+        throw new RemoteException("listener gone");
+      }
+
+      @Override
+      public void onTruncated(long oldestIndex) {
+      }
+    });
+
+    tenant.put("key", "value");
+    assertTrue(delivered.await(5, TimeUnit.SECONDS));
+    long deadline = System.currentTimeMillis() + 5000;
+    while (isWatching(store, subscription) && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+
+    assertThrows(IllegalArgumentException.class, () -> tenant.unwatch(subscription));
+  }
+
+  private static boolean isWatching(PaxosServerImpl store, long subscription) {
+    try {
+      store.checkWatchNamespace(subscription, "tenant");
+      return true;
+    } catch (IllegalArgumentException e) {
+      return false;
+    }
+  }
+
+  @Test
+  void viewStaysInItsNamespace() {
+    NamespaceView tenant = new NamespaceView("tenant", newReplica());
+
+    assertSame(tenant, tenant.namespace("tenant"));
+    assertThrows(IllegalArgumentException.class, () -> tenant.namespace("other"));
+    assertThrows(IllegalArgumentException.class, () -> tenant.namespace(Namespace.DEFAULT));
+  }
+
+  private PaxosServerImpl newReplica() {
+    System.setProperty("paxos.namespaces", "tenant,other");
+    PaxosServerImpl replica;
+    try {
+      replica = new PaxosServerImpl(0, clock::incrementAndGet, 1, () -> true,
+              new QuorumConfig(0, 0, Collections.emptySet()));
+    } finally {
+      System.clearProperty("paxos.namespaces");
+    }
+    replica.updateConnectedServers(Collections.singletonList(replica));
+    return replica;
+  }
+}
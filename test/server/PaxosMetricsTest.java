@@ -0,0 +1,20 @@
+package server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+
+class PaxosMetricsTest {
+
+  @Test
+  void labelValuesAreEscaped() {
+    assertEquals("a\\\\b\\\"c\\nd", PaxosMetrics.escapeLabel("a\\b\"c\nd"));
+  }
+
+  @Test
+  void plainLabelValuesAreNotCopied() {
+    String value = "tenant-1";
+    assertSame(value, PaxosMetrics.escapeLabel(value));
+  }
+}
@@ -0,0 +1,338 @@
+package server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import shared.Logger;
+
+class PaxosServerImplTest {
+
+  private final AtomicLong clock = new AtomicLong();
+
+  @BeforeAll
+  static void quietLogs() {
+    Logger.setLevel(Logger.Level.WARN);
+  }
+
+  @Test
+  void learnsEachProposalOnceWhenCopiesInterleave() throws Exception {
+    PaxosServerImpl learner = newReplica(0);
+
+    // Each acceptor's copy is a separate object, as it is once deserialized
+    learner.updateLearner(new AcceptMessage(1, proposed("p:1", Command.put("key", "first"))));
+    learner.updateLearner(new AcceptMessage(2, proposed("p:2", Command.put("key", "second"))));
+    learner.updateLearner(new AcceptMessage(1, proposed("p:1", Command.put("key", "first"))));
+    learner.updateLearner(new AcceptMessage(2, proposed("p:2", Command.put("key", "second"))));
+
+    assertEquals(2, learner.getAppliedIndex());
+    assertEquals("second", learner.get("key"));
+  }
+
+  @Test
+  void learnsDifferentCommandsProposedUnderTheSameId() throws Exception {
+    PaxosServerImpl learner = newReplica(0);
+
+    learner.updateLearner(new AcceptMessage(1, proposed("p:1", Command.put("a", "1"))));
+    learner.updateLearner(new AcceptMessage(1, proposed("q:1", Command.put("b", "2"))));
+
+    assertEquals(2, learner.getAppliedIndex());
+    assertEquals("1", learner.get("a"));
+    assertEquals("2", learner.get("b"));
+  }
+
+  @Test
+  void staleTransactionAbortsWhenWritesShareAProposalId() throws Exception {
+    PaxosServerImpl learner = newReplica(0);
+
+    // Proposal ids come from a millisecond clock, so writes in the same millisecond share one
+    learner.updateLearner(new AcceptMessage(42, proposed("p:1", Command.put("key", "first"))));
+    long staleVersion = learner.getVersioned("key").getVersion();
+    learner.updateLearner(new AcceptMessage(42, proposed("p:2", Command.put("key", "second"))));
+    TransactionCommand stale = new TransactionCommand("tx", Collections.singletonMap("key", staleVersion),
+            Collections.singletonList(Command.put("key", "stale")));
+    learner.updateLearner(new AcceptMessage(42, proposed("p:3", stale)));
+
+    assertTrue(learner.getVersioned("key").getVersion() > staleVersion);
+    assertEquals("second", learner.getVersioned("key").getValue());
+  }
+
+  @Test
+  void deletedKeyDoesNotReuseItsVersion() throws Exception {
+    PaxosServerImpl learner = newReplica(0);
+
+    learner.updateLearner(new AcceptMessage(42, proposed("p:1", Command.put("key", "first"))));
+    long staleVersion = learner.getVersioned("key").getVersion();
+    learner.updateLearner(new AcceptMessage(42, proposed("p:2", Command.delete("key"))));
+    learner.updateLearner(new AcceptMessage(42, proposed("p:3", Command.put("key", "second"))));
+
+    assertNotEquals(staleVersion, learner.getVersioned("key").getVersion());
+  }
+
+  @Test
+  void concurrentDisjointTransactionsAllCommit() throws Exception {
+    List<PaxosServerImpl> cluster = newCluster(5);
+    ExecutorService clients = Executors.newFixedThreadPool(16);
+    try {
+      List<Future<String>> responses = new ArrayList<>();
+      for (int i = 0; i < 400; i++) {
+        String key = "key" + i;
+        responses.add(clients.submit(() -> {
+          PaxosServerImpl server = cluster.get(0);
+          VersionedValue read = server.getVersioned(key);
+          TransactionCommand transaction = new TransactionCommand(key + "-tx",
+                  Collections.singletonMap(key, read.getVersion()),
+                  Collections.singletonList(Command.put(key, "value")));
+          String response;
+          do {
+            response = server.commit(transaction);
+          } while (response.contains("Please try again"));
+          return response;
+        }));
+      }
+      for (Future<String> response : responses) {
+        assertTrue(response.get().endsWith("committed successfully"), response.get());
+      }
+      for (int i = 0; i < 400; i++) {
+        assertEquals("value", cluster.get(0).get("key" + i));
+      }
+    } finally {
+      clients.shutdownNow();
+      for (PaxosServerImpl server : cluster) {
+        server.shutdown();
+      }
+    }
+  }
+
+  @Test
+  void proposalThatMissesPhaseTwoQuorumCountsAsFailed() throws Exception {
+    // Each acceptor answers its first request, the prepare, and then goes down
+    List<PaxosServerImpl> cluster = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      AtomicInteger requests = new AtomicInteger();
+      cluster.add(new PaxosServerImpl(i, clock::incrementAndGet, 1, () -> requests.incrementAndGet() == 1,
+              new QuorumConfig(0, 0, Collections.emptySet())));
+    }
+    List<PaxosServer> peers = new ArrayList<>(cluster);
+    for (PaxosServerImpl server : cluster) {
+      server.updateConnectedServers(peers);
+    }
+
+    String response = cluster.get(0).put("key", "value");
+
+    assertTrue(response.contains("Please try again"), response);
+    assertEquals(1, cluster.get(0).getMetrics().getProposalCount());
+    assertEquals(1, cluster.get(0).getMetrics().getFailedProposalCount());
+  }
+
+  @Test
+  void readsAreShedWhenNoRequestCanBeAdmitted() throws Exception {
+    RequestExecutor executor = new RequestExecutor(1, 0, null);
+    PaxosServerImpl server = new PaxosServerImpl(0, clock::incrementAndGet, 1, () -> true,
+            new QuorumConfig(0, 0, Collections.emptySet()), executor, System::nanoTime);
+    assertTrue(executor.tryAdmit());
+
+    assertTrue(server.get("key").contains("Please try again"));
+    assertThrows(RemoteException.class, () -> server.getVersioned("key"));
+    assertThrows(RemoteException.class, () -> server.getBinary("key"));
+    assertEquals(3, server.getMetrics().getRejectedRequestCount());
+
+    executor.release();
+    assertEquals(0, server.getVersioned("key").getVersion());
+    assertEquals(0, executor.getInFlightRequests());
+  }
+
+  @Test
+  void proposerCompletesTheHighestAcceptedValueAndRetriesItsOwn() throws Exception {
+    List<PaxosServerImpl> cluster = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      cluster.add(newReplica(i));
+    }
+    List<PaxosServer> peers = new ArrayList<>(cluster);
+    cluster.get(0).updateConnectedServers(peers);
+    cluster.get(3).updateConnectedServers(peers);
+    cluster.get(4).updateConnectedServers(peers);
+    // Replicas 1 and 2 accepted values of earlier rounds that were cut off before anyone learned them
+    cluster.get(1).accept(20, proposed("p:20", Command.put("key", "newer")));
+    cluster.get(2).accept(10, proposed("p:10", Command.put("key", "older")));
+    clock.set(100);
+
+    String response = cluster.get(0).put("key", "own");
+
+    assertTrue(response.contains("Please try again"), response);
+    for (PaxosServerImpl replica : cluster) {
+      assertEquals("newer", replica.get("key"));
+    }
+  }
+
+  @Test
+  void putFailsWhenPhaseTwoMissesItsQuorum() throws Exception {
+    // A quorum of acceptors promises, then every acceptor refuses the accept
+    AtomicInteger requests = new AtomicInteger();
+    List<PaxosServerImpl> cluster = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      cluster.add(new PaxosServerImpl(i, clock::incrementAndGet, 1, () -> requests.incrementAndGet() <= 3,
+              new QuorumConfig(0, 0, Collections.emptySet())));
+    }
+    List<PaxosServer> peers = new ArrayList<>(cluster);
+    for (PaxosServerImpl server : cluster) {
+      server.updateConnectedServers(peers);
+    }
+
+    String response = cluster.get(0).put("key", "value");
+
+    assertTrue(response.contains("Please try again"), response);
+    assertEquals("Key key not present in store", cluster.get(0).get("key"));
+  }
+
+  @Test
+  void undeclaredPrefixesArePlainDefaultKeys() throws Exception {
+    PaxosServerImpl server = newReplica(0);
+    server.updateConnectedServers(Collections.singletonList(server));
+
+    server.put("stranger/key", "value");
+    server.get("other/key");
+
+    assertThrows(IllegalArgumentException.class, () -> server.namespace("stranger"));
+    String scrape = server.getMetrics().scrape();
+    assertFalse(scrape.contains("stranger"), scrape);
+    assertFalse(scrape.contains("other"), scrape);
+    assertTrue(scrape.contains("paxos_namespace_keys{port=\"0\",namespace=\"default\"} 1"), scrape);
+  }
+
+  @Test
+  void declaredNamespacesCanBeUsed() throws Exception {
+    System.setProperty("paxos.namespaces", "tenant");
+    System.setProperty("paxos.namespace.limited.maxKeys", "1");
+    PaxosServerImpl server;
+    try {
+      server = newReplica(0);
+    } finally {
+      System.clearProperty("paxos.namespaces");
+      System.clearProperty("paxos.namespace.limited.maxKeys");
+    }
+    server.updateConnectedServers(Collections.singletonList(server));
+    try {
+      server.namespace("tenant").put("key", "value");
+      server.namespace("limited").put("a", "1");
+
+      assertTrue(server.namespace("limited").put("b", "2").contains("quota"));
+      String scrape = server.getMetrics().scrape();
+      assertTrue(scrape.contains("paxos_namespace_keys{port=\"0\",namespace=\"tenant\"} 1"), scrape);
+      assertTrue(scrape.contains("paxos_namespace_keys{port=\"0\",namespace=\"limited\"} 1"), scrape);
+    } finally {
+      server.shutdown();
+    }
+  }
+
+  @Test
+  void namespaceRateLimitsFollowTheReplicaClock() throws Exception {
+    System.setProperty("paxos.namespace.tenant.writeRate", "1");
+    PaxosServerImpl server;
+    try {
+      server = newReplica(0);
+    } finally {
+      System.clearProperty("paxos.namespace.tenant.writeRate");
+    }
+    server.updateConnectedServers(Collections.singletonList(server));
+    try {
+      Server tenant = server.namespace("tenant");
+
+      assertTrue(tenant.put("a", "1").contains("successfully"));
+      assertTrue(tenant.put("b", "2").contains("over its rate"));
+      clock.addAndGet(1_000_000); // one virtual second, in microseconds
+      assertTrue(tenant.put("c", "3").contains("successfully"));
+    } finally {
+      server.shutdown();
+    }
+  }
+
+  @Test
+  void commitReportsTheOutcomeLearnedEvenWhenPhaseTwoMissesItsQuorum() throws Exception {
+    // Only replica 0 accepts; its learner broadcast still applies the transaction everywhere
+    List<PaxosServerImpl> cluster = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      AtomicInteger requests = new AtomicInteger();
+      boolean alwaysUp = i == 0;
+      cluster.add(new PaxosServerImpl(i, clock::incrementAndGet, 1,
+              () -> alwaysUp || requests.incrementAndGet() == 1, new QuorumConfig(0, 0, Collections.emptySet())));
+    }
+    List<PaxosServer> peers = new ArrayList<>(cluster);
+    for (PaxosServerImpl server : cluster) {
+      server.updateConnectedServers(peers);
+    }
+    TransactionCommand transaction = new TransactionCommand("tx", Collections.singletonMap("key", 0L),
+            Collections.singletonList(Command.put("key", "value")));
+
+    String response = cluster.get(0).commit(transaction);
+
+    assertTrue(response.endsWith("committed successfully"), response);
+    assertEquals("value", cluster.get(0).get("key"));
+  }
+
+  @Test
+  void appliedIndexLagLeavesWitnessesOut() throws Exception {
+    QuorumConfig quorumConfig = new QuorumConfig(0, 0, Collections.singleton(2));
+    List<PaxosServerImpl> cluster = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      cluster.add(new PaxosServerImpl(i, System::currentTimeMillis, 100, () -> true, quorumConfig,
+              new RequestExecutor(), System::nanoTime));
+    }
+    List<PaxosServer> peers = new ArrayList<>(cluster);
+    for (PaxosServerImpl server : cluster) {
+      server.updateConnectedServers(peers);
+    }
+
+    cluster.get(0).put("key", "value");
+    String scrape = cluster.get(0).getMetrics().scrape();
+
+    assertTrue(scrape.contains("paxos_applied_index_lag{port=\"0\",replica=\"1\"}"), scrape);
+    assertFalse(scrape.contains("replica=\"2\""), scrape);
+  }
+
+  private static ProposedCommand proposed(String id, Consumer<Map<String, String>> command) {
+    return new ProposedCommand(id, command);
+  }
+
+  /**
+   * Creates a replica with no background threads, numbering its proposals from the test's clock.
+   */
+  private PaxosServerImpl newReplica(int port) {
+    return new PaxosServerImpl(port, clock::incrementAndGet, 1, () -> true,
+            new QuorumConfig(0, 0, Collections.emptySet()));
+  }
+
+  /**
+   * Creates replicas that call each other directly and concurrently, as in-process servers do,
+   * numbering their proposals from the wall clock. No heartbeats are sent, so no peer is suspected.
+   */
+  private static List<PaxosServerImpl> newCluster(int replicas) {
+    List<PaxosServerImpl> cluster = new ArrayList<>();
+    for (int i = 0; i < replicas; i++) {
+      cluster.add(new PaxosServerImpl(i, System::currentTimeMillis, 100, () -> true,
+              new QuorumConfig(0, 0, Collections.emptySet()), new RequestExecutor(), System::nanoTime));
+    }
+    List<PaxosServer> peers = new ArrayList<>(cluster);
+    for (PaxosServerImpl server : cluster) {
+      server.updateConnectedServers(peers);
+    }
+    return cluster;
+  }
+}
@@ -0,0 +1,36 @@
+package server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class RequestExecutorTest {
+
+  @Test
+  void sequentialQuorumStillCallsEveryPeer() throws Exception {
+    List<Integer> called = new ArrayList<>();
+
+    List<Integer> answers = RequestExecutor.sequential().callQuorum(Arrays.asList(1, 2, 3, 4, 5), peer -> {
+      called.add(peer);
+      if (peer == 5) {
+        throw new IllegalStateException("unreachable");
+      }
+      return peer;
+    }, 3);
+
+    assertEquals(Arrays.asList(1, 2, 3), answers);
+    assertEquals(Arrays.asList(1, 2, 3, 4, 5), called);
+  }
+
+  @Test
+  void sequentialQuorumSkipsNullAnswers() throws Exception {
+    List<Integer> answers = RequestExecutor.sequential().callQuorum(Arrays.asList(1, 2, 3, 4, 5),
+            peer -> peer % 2 == 0 ? null : peer, 2);
+
+    assertEquals(Arrays.asList(1, 3), answers);
+  }
+}
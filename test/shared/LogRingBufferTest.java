@@ -0,0 +1,75 @@
+package shared;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class LogRingBufferTest {
+
+  @Test
+  void refusesRecordsWhenFullAndReusesReleasedSlots() {
+    LogRingBuffer buffer = new LogRingBuffer(4);
+
+    for (int i = 0; i < 4; i++) {
+      assertTrue(buffer.offer(i, System.out, "m" + i));
+    }
+    assertFalse(buffer.offer(4, System.out, "m4"));
+    assertEquals("m0", buffer.peek().message);
+    buffer.release();
+    assertTrue(buffer.offer(4, System.out, "m4"));
+    for (int i = 1; i <= 4; i++) {
+      assertEquals("m" + i, buffer.peek().message);
+      buffer.release();
+    }
+    assertNull(buffer.peek());
+  }
+
+  @Test
+  void deliversEveryRecordFromConcurrentProducersInOrder() throws Exception {
+    int producers = 4;
+    int perProducer = 20000;
+    // A small buffer makes the producers wrap around it many times and often find it full
+    LogRingBuffer buffer = new LogRingBuffer(8);
+    List<Thread> threads = new ArrayList<>();
+    for (int p = 0; p < producers; p++) {
+      int producer = p;
+      Thread thread = new Thread(() -> {
+        for (int i = 0; i < perProducer; i++) {
+          while (!buffer.offer(i, System.out, String.valueOf(producer))) {
+            Thread.yield();
+          }
+        }
+      });
+      threads.add(thread);
+      thread.start();
+    }
+
+    long[] next = new long[producers];
+    int received = 0;
+    while (received < producers * perProducer) {
+      LogRingBuffer.Slot slot = buffer.peek();
+      if (slot == null) {
+        Thread.yield();
+        continue;
+      }
+      int producer = Integer.parseInt(slot.message);
+      assertEquals(next[producer]++, slot.timestamp);
+      buffer.release();
+      received++;
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    assertNull(buffer.peek());
+    for (long count : next) {
+      assertEquals(perProducer, count);
+    }
+  }
+}
@@ -0,0 +1,28 @@
+package shared;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import org.junit.jupiter.api.Test;
+
+class LoggerTest {
+
+  @Test
+  void asyncLoggerWakesItsIdleFlusher() throws Exception {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    Logger logger = new Logger(new PrintStream(output, true), true);
+
+    for (int i = 0; i < 3; i++) {
+      // Give the flusher time to run out of records and park before each message
+      Thread.sleep(50);
+      logger.log(Logger.Level.ERROR, "message " + i);
+      long deadline = System.currentTimeMillis() + 5000;
+      while (!output.toString().contains("message " + i) && System.currentTimeMillis() < deadline) {
+        Thread.sleep(1);
+      }
+      assertTrue(output.toString().contains("message " + i), output.toString());
+    }
+  }
+}
@@ -0,0 +1,63 @@
+package simulation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Collections;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import shared.Logger;
+
+class SimulationTest {
+
+  @BeforeAll
+  static void quietLogs() {
+    Logger.setLevel(Logger.Level.WARN);
+  }
+
+  @Test
+  void defaultRunsFindNoSafetyViolation() {
+    for (long seed = 1; seed <= 10; seed++) {
+      Simulation simulation = new Simulation(new SimulationOptions(Collections.emptyMap()), seed);
+      assertTrue(simulation.run(), simulation.summary());
+    }
+  }
+
+  @Test
+  void runsReplayExactly() {
+    SimulationOptions options = new SimulationOptions(Collections.emptyMap());
+    Simulation first = new Simulation(options, 7);
+    Simulation second = new Simulation(options, 7);
+    first.run();
+    second.run();
+
+    assertEquals(first.summary(), second.summary());
+  }
+
+  @Test
+  void faultFreeRunsDoNotDiverge() {
+    SimulationOptions options = options("dropRate=0", "crashInterval=0", "partitionInterval=0", "strict=true");
+    for (long seed = 1; seed <= 3; seed++) {
+      Simulation simulation = new Simulation(options, seed);
+      assertTrue(simulation.run(), simulation.summary());
+      assertEquals(0, simulation.getDivergentKeys(), simulation.summary());
+    }
+  }
+
+  @Test
+  void lossyRunsConvergeOnceEveryKeyIsRewritten() {
+    // 60 virtual seconds at 5 requests/s rewrite each of the 100 keys three times
+    SimulationOptions options = options("settle=60", "strict=true");
+    for (long seed = 1; seed <= 10; seed++) {
+      Simulation simulation = new Simulation(options, seed);
+      assertTrue(simulation.run(), simulation.summary());
+      assertEquals(0, simulation.getDivergentKeys(), simulation.summary());
+    }
+  }
+
+  private static SimulationOptions options(String... options) {
+    return new SimulationOptions(SimulationOptions.parse(options));
+  }
+}